@@ -10,6 +10,11 @@ package com.mitchellbosecke.pebble;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.mitchellbosecke.pebble.attributes.MemberAccessorRegistry;
 import com.mitchellbosecke.pebble.cache.BaseTagCacheKey;
 import com.mitchellbosecke.pebble.error.LoaderException;
 import com.mitchellbosecke.pebble.error.PebbleException;
@@ -22,25 +27,44 @@ import com.mitchellbosecke.pebble.extension.escaper.EscapingStrategy;
 import com.mitchellbosecke.pebble.extension.i18n.I18nExtension;
 import com.mitchellbosecke.pebble.lexer.LexerImpl;
 import com.mitchellbosecke.pebble.lexer.Syntax;
+import com.mitchellbosecke.pebble.lexer.TokenStreamSerializer;
 import com.mitchellbosecke.pebble.lexer.TokenStream;
 import com.mitchellbosecke.pebble.loader.ClasspathLoader;
 import com.mitchellbosecke.pebble.loader.DelegatingLoader;
 import com.mitchellbosecke.pebble.loader.FileLoader;
+import com.mitchellbosecke.pebble.loader.ListableLoader;
 import com.mitchellbosecke.pebble.loader.Loader;
+import com.mitchellbosecke.pebble.loader.PrecompiledLoader;
+import com.mitchellbosecke.pebble.loader.PrecompiledStream;
+import com.mitchellbosecke.pebble.loader.ReloadableLoader;
 import com.mitchellbosecke.pebble.node.RootNode;
 import com.mitchellbosecke.pebble.parser.Parser;
 import com.mitchellbosecke.pebble.parser.ParserImpl;
+import com.mitchellbosecke.pebble.template.DependencyGraph;
 import com.mitchellbosecke.pebble.template.PebbleTemplate;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+import com.mitchellbosecke.pebble.template.SymbolTable;
+import com.mitchellbosecke.pebble.utils.BufferPool;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * The main class used for compiling templates. The PebbleEngine is responsible
@@ -63,10 +87,26 @@ public class PebbleEngine {
 
     private final ExecutorService executorService;
 
+    private final ExecutorService listeningExecutorService;
+
+    private final boolean ownsExecutorService;
+
     private final Cache<Object, PebbleTemplate> templateCache;
 
     private final ExtensionRegistry extensionRegistry;
 
+    private final boolean reloadChangedTemplates;
+
+    private final MemberAccessorRegistry memberAccessorRegistry;
+
+    private final BufferPool bufferPool;
+
+    private final DependencyGraph dependencyGraph;
+
+    private final SymbolTable symbolTable;
+
+    private final TokenStreamSerializer tokenStreamSerializer;
+
     /**
      * Constructor for the Pebble Engine given an instantiated Loader. This
      * method does only load those userProvidedExtensions listed here.
@@ -77,16 +117,37 @@ public class PebbleEngine {
      */
     private PebbleEngine(Loader<?> loader, Syntax syntax, boolean strictVariables, Locale defaultLocale,
                          Cache<BaseTagCacheKey, Object> tagCache, Cache<Object, PebbleTemplate> templateCache,
-                         ExecutorService executorService, Collection<? extends Extension> extensions) {
+                         ExecutorService executorService, boolean ownsExecutorService, boolean reloadChangedTemplates,
+                         BufferPool bufferPool, DependencyGraph dependencyGraph,
+                         Collection<? extends Extension> extensions) {
 
         this.loader = loader;
         this.syntax = syntax;
         this.strictVariables = strictVariables;
         this.defaultLocale = defaultLocale;
         this.tagCache = tagCache;
+        /*
+         * The futures of a listening executor let an asynchronous evaluation
+         * continue once its parallel blocks are done instead of waiting. A
+         * fork join pool is kept as it is because the parallel tag forks its
+         * own listenable tasks into it.
+         */
         this.executorService = executorService;
+        if (executorService == null || executorService instanceof ForkJoinPool) {
+            this.listeningExecutorService = executorService;
+        } else {
+            this.listeningExecutorService = MoreExecutors.listeningDecorator(executorService);
+        }
+        this.ownsExecutorService = ownsExecutorService;
         this.templateCache = templateCache;
+        this.reloadChangedTemplates = reloadChangedTemplates;
         this.extensionRegistry = new ExtensionRegistry(extensions);
+        this.memberAccessorRegistry = new MemberAccessorRegistry();
+        this.bufferPool = bufferPool;
+        this.dependencyGraph = dependencyGraph;
+        this.symbolTable = new SymbolTable();
+        this.tokenStreamSerializer = new TokenStreamSerializer(syntax, extensionRegistry.getUnaryOperators().values(),
+                extensionRegistry.getBinaryOperators().values());
     }
 
     /**
@@ -120,25 +181,13 @@ public class PebbleEngine {
             result = templateCache.get(cacheKey, new Callable<PebbleTemplate>() {
 
                 public PebbleTemplateImpl call() throws Exception {
-
-                    LexerImpl lexer = new LexerImpl(syntax, extensionRegistry.getUnaryOperators().values(),
-                            extensionRegistry.getBinaryOperators().values());
-                    Reader templateReader = self.retrieveReaderFromLoader(self.loader, cacheKey);
-                    TokenStream tokenStream = lexer.tokenize(templateReader, templateName);
-
-                    Parser parser = new ParserImpl(extensionRegistry.getUnaryOperators(),
-                            extensionRegistry.getBinaryOperators(), extensionRegistry.getTokenParsers());
-                    RootNode root = parser.parse(tokenStream);
-
-                    PebbleTemplateImpl instance = new PebbleTemplateImpl(self, root, templateName);
-
-                    for (NodeVisitorFactory visitorFactory : extensionRegistry.getNodeVisitors()) {
-                        visitorFactory.createVisitor(instance).visit(root);
-                    }
-
-                    return instance;
+                    return self.compileTemplate(templateName, cacheKey);
                 }
             });
+
+            if (reloadChangedTemplates) {
+                result = reloadIfChanged(templateName, cacheKey, result);
+            }
         } catch (ExecutionException e) {
             /*
              * The execution exception is probably caused by a PebbleException
@@ -156,6 +205,260 @@ public class PebbleEngine {
         return result;
     }
 
+    /**
+     * Evicts a template from the template cache together with all the cached
+     * templates which extend, include or import it, directly or through other
+     * templates. They are compiled again the next time they are retrieved.
+     * Only dependencies on template names which are literal strings are known,
+     * see {@link DependencyGraph}. The tag cache is cleared as well because
+     * its entries may contain the output of the evicted templates.
+     *
+     * @param templateName The name of the template
+     */
+    public void invalidate(String templateName) {
+        Set<String> names = dependencyGraph.getDependentsOf(templateName);
+        Iterator<Map.Entry<Object, PebbleTemplate>> entries = templateCache.asMap().entrySet().iterator();
+        while (entries.hasNext()) {
+            if (names.contains(entries.next().getValue().getName())) {
+                entries.remove();
+            }
+        }
+        tagCache.invalidateAll();
+    }
+
+    /**
+     * Compiles all the templates which the loader is able to list, see
+     * {@link #precompile(Collection, ExecutorService)}.
+     *
+     * @param executorService The executor service to compile the templates on
+     * @return The errors by the name of the template which could not be
+     * compiled, an empty map if all of them were compiled
+     * @throws LoaderException      If the loader is not able to list its
+     *                              templates
+     * @throws InterruptedException If the thread is interrupted while waiting
+     *                              for the templates to be compiled
+     */
+    public Map<String, PebbleException> precompile(ExecutorService executorService)
+            throws LoaderException, InterruptedException {
+        if (!(this.loader instanceof ListableLoader)) {
+            throw new LoaderException(null, "The loader is not able to list its templates.");
+        }
+        return precompile(((ListableLoader<?>) this.loader).listTemplateNames(), executorService);
+    }
+
+    /**
+     * Compiles templates concurrently and puts them into the template cache,
+     * i.e. to warm up the cache before the first requests arrive or to check
+     * all the templates for errors on startup. The templates which are
+     * extended, included or imported with a literal name are compiled as well.
+     * <p>
+     * Every template is compiled even if some of them fail, so the result
+     * holds the errors of all the broken templates.
+     *
+     * @param templateNames   The names of the templates
+     * @param executorService The executor service to compile the templates on
+     * @return The errors by the name of the template which could not be
+     * compiled, an empty map if all of them were compiled
+     * @throws InterruptedException If the thread is interrupted while waiting
+     *                              for the templates to be compiled
+     */
+    public Map<String, PebbleException> precompile(Collection<String> templateNames,
+            ExecutorService executorService) throws InterruptedException {
+        Map<String, PebbleException> errors = new TreeMap<String, PebbleException>();
+        Set<String> seen = new HashSet<String>(templateNames);
+        List<String> pending = new ArrayList<String>(seen);
+
+        // each round compiles the dependencies found in the previous one
+        while (!pending.isEmpty()) {
+            List<Future<PebbleException>> futures = new ArrayList<Future<PebbleException>>(pending.size());
+            for (final String templateName : pending) {
+                futures.add(executorService.submit(new Callable<PebbleException>() {
+
+                    @Override
+                    public PebbleException call() {
+                        try {
+                            getTemplate(templateName);
+                            return null;
+                        } catch (PebbleException e) {
+                            return e;
+                        } catch (RuntimeException e) {
+                            return new PebbleException(e, String.format("An error occurred while compiling %s",
+                                    templateName));
+                        }
+                    }
+                }));
+            }
+
+            List<String> next = new ArrayList<String>();
+            for (int i = 0; i < pending.size(); i++) {
+                String templateName = pending.get(i);
+                PebbleException error;
+                try {
+                    error = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    error = new PebbleException(e.getCause(), String.format("An error occurred while compiling %s",
+                            templateName));
+                }
+                if (error != null) {
+                    errors.put(templateName, error);
+                    continue;
+                }
+                for (String dependency : dependencyGraph.getDependencies(templateName)) {
+                    if (seen.add(dependency)) {
+                        next.add(dependency);
+                    }
+                }
+            }
+            pending = next;
+        }
+        return errors;
+    }
+
+    /**
+     * Loads, parses, and compiles a template.
+     *
+     * @param templateName The name of the template
+     * @param cacheKey     The cache key created by the loader
+     * @return The compiled template
+     * @throws PebbleException An exception that may occur while loading or
+     *                         compiling the template
+     */
+    private PebbleTemplateImpl compileTemplate(String templateName, Object cacheKey) throws PebbleException {
+
+        /*
+         * The fingerprint is taken before the source is read so that a change
+         * while reading leads to another reload rather than to a missed one.
+         */
+        Object fingerprint = reloadChangedTemplates ? retrieveFingerprintFromLoader(loader, cacheKey) : null;
+
+        /*
+         * A precompiled template is only used if it was written for the
+         * current source, which the loader tells by the fingerprint of the
+         * source without reading it.
+         */
+        TokenStream tokenStream = retrievePrecompiledTokens(loader, templateName, cacheKey);
+        if (tokenStream == null) {
+            tokenStream = tokenize(retrieveReaderFromLoader(loader, cacheKey), templateName);
+        }
+
+        Parser parser = new ParserImpl(extensionRegistry.getUnaryOperators(),
+                extensionRegistry.getBinaryOperators(), extensionRegistry.getTokenParsers(),
+                extensionRegistry.getFilters(), extensionRegistry.getTests(),
+                extensionRegistry.getFunctions(), symbolTable);
+        RootNode root = parser.parse(tokenStream);
+
+        PebbleTemplateImpl instance = new PebbleTemplateImpl(this, root, templateName, fingerprint);
+
+        for (NodeVisitorFactory visitorFactory : extensionRegistry.getNodeVisitors()) {
+            visitorFactory.createVisitor(instance).visit(root);
+        }
+
+        dependencyGraph.addTemplate(instance, root);
+
+        return instance;
+    }
+
+    private TokenStream tokenize(Reader templateReader, String templateName) throws PebbleException {
+        LexerImpl lexer = new LexerImpl(syntax, extensionRegistry.getUnaryOperators().values(),
+                extensionRegistry.getBinaryOperators().values());
+        return lexer.tokenize(templateReader, templateName);
+    }
+
+    /**
+     * Lexes a template and writes its tokens into a binary form which is read
+     * instead of the source when the loader finds it, see
+     * {@link PrecompiledLoader}. This is meant to be done at build time, i.e.
+     * with {@link Precompiler}, for applications which start often. The
+     * precompiled template is only used by engines with the same syntax and
+     * operators, and only as long as the fingerprint of its source, see
+     * {@link ReloadableLoader}, did not change. The fingerprint is taken from
+     * the loader of this engine, so it has to find the templates the same way
+     * a {@link FileLoader} or {@link ClasspathLoader} does at runtime; the
+     * fingerprint of a {@link DelegatingLoader} never matches.
+     *
+     * @param templateName The name of the template
+     * @param out          The output stream, which is not closed
+     * @throws PebbleException If the template can not be loaded or lexed
+     * @throws IOException     Thrown by the output stream
+     */
+    public void writePrecompiledTemplate(String templateName, OutputStream out) throws PebbleException,
+            IOException {
+        if (this.loader == null) {
+            throw new LoaderException(null, "Loader has not yet been specified.");
+        }
+        Object cacheKey = this.loader.createCacheKey(templateName);
+        Object fingerprint = retrieveFingerprintFromLoader(loader, cacheKey);
+        TokenStream tokenStream = tokenize(retrieveReaderFromLoader(loader, cacheKey), templateName);
+        tokenStreamSerializer.write(tokenStream, fingerprint, out);
+    }
+
+    private <T> TokenStream retrievePrecompiledTokens(Loader<T> loader, String templateName, Object cacheKey)
+            throws LoaderException {
+        if (!(loader instanceof PrecompiledLoader)) {
+            return null;
+        }
+        // We make sure within getTemplate() that we use only the same key for
+        // the same loader and hence we can be sure that the cast is safe.
+        @SuppressWarnings("unchecked")
+        T casted = (T) cacheKey;
+        PrecompiledStream precompiled = ((PrecompiledLoader<T>) loader).getPrecompiledStream(casted);
+        if (precompiled == null) {
+            return null;
+        }
+        InputStream in = precompiled.getInputStream();
+        try {
+            try {
+                return tokenStreamSerializer.read(new BufferedInputStream(in), templateName,
+                        precompiled.getSourceFingerprint());
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            throw new LoaderException(e, "Could not read precompiled template \"" + templateName + "\"");
+        }
+    }
+
+    /**
+     * Compiles a cached template again if its source changed since it was
+     * compiled. The templates it extends, includes or imports don't have to be
+     * compiled again because they are retrieved from the engine whenever it is
+     * evaluated and are therefore checked on their own.
+     *
+     * @param templateName The name of the template
+     * @param cacheKey     The cache key created by the loader
+     * @param cached       The cached template
+     * @return The current template
+     * @throws PebbleException An exception that may occur while loading or
+     *                         compiling the template
+     */
+    private PebbleTemplate reloadIfChanged(String templateName, Object cacheKey, PebbleTemplate cached)
+            throws PebbleException {
+        Object fingerprint = retrieveFingerprintFromLoader(loader, cacheKey);
+        if (fingerprint == null || fingerprint.equals(((PebbleTemplateImpl) cached).getSourceFingerprint())) {
+            return cached;
+        }
+
+        PebbleTemplateImpl reloaded = compileTemplate(templateName, cacheKey);
+        if (templateCache.asMap().replace(cacheKey, cached, reloaded)) {
+            return reloaded;
+        }
+
+        // another thread reloaded or evicted the template in the meantime
+        PebbleTemplate current = templateCache.getIfPresent(cacheKey);
+        return current == null ? reloaded : current;
+    }
+
+    private <T> Object retrieveFingerprintFromLoader(Loader<T> loader, Object cacheKey) {
+        if (!(loader instanceof ReloadableLoader)) {
+            return null;
+        }
+        // We make sure within getTemplate() that we use only the same key for
+        // the same loader and hence we can be sure that the cast is safe.
+        @SuppressWarnings("unchecked")
+        T casted = (T) cacheKey;
+        return ((ReloadableLoader<T>) loader).getSourceFingerprint(casted);
+    }
+
     /**
      * This method calls the loader and fetches the reader. We use this method
      * to handle the generic cast.
@@ -218,6 +521,30 @@ public class PebbleEngine {
         return executorService;
     }
 
+    /**
+     * Returns the executor service the "parallel" tags are run on: the fork
+     * join pool itself, or the executor service given to the builder
+     * decorated so that the futures it returns are listenable.
+     *
+     * @return The executor service or null if there is none
+     */
+    public ExecutorService getListeningExecutorService() {
+        return listeningExecutorService;
+    }
+
+    /**
+     * Shuts down the executor service which the engine created for
+     * {@link Builder#parallelism(int)}; the "parallel" tags can't be evaluated
+     * afterwards. An executor service given to
+     * {@link Builder#executorService(ExecutorService)} belongs to the caller
+     * and is left running.
+     */
+    public void shutdown() {
+        if (ownsExecutorService) {
+            executorService.shutdown();
+        }
+    }
+
     /**
      * Returns the syntax which is used by this PebbleEngine.
      *
@@ -245,6 +572,47 @@ public class PebbleEngine {
         return this.tagCache;
     }
 
+    /**
+     * Returns the registry of methods and fields that attributes were resolved
+     * to. Its statistics can be used to monitor attribute lookups.
+     *
+     * @return The member accessor registry
+     */
+    public MemberAccessorRegistry getMemberAccessorRegistry() {
+        return memberAccessorRegistry;
+    }
+
+    /**
+     * Returns the pool of buffers the templates render their intermediate
+     * output into. It can also be used for the final output, i.e. by
+     * evaluating into a writer acquired from the pool and releasing it once
+     * its content has been sent.
+     *
+     * @return The buffer pool
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    /**
+     * Returns which templates depend on which other templates.
+     *
+     * @return The dependency graph
+     */
+    public DependencyGraph getDependencyGraph() {
+        return dependencyGraph;
+    }
+
+    /**
+     * Returns the symbol table which the variable names of the templates are
+     * resolved with.
+     *
+     * @return The symbol table
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
     /**
      * A builder to configure and construct an instance of a PebbleEngine.
      */
@@ -262,14 +630,22 @@ public class PebbleEngine {
 
         private ExecutorService executorService;
 
+        private int parallelism;
+
         private Cache<Object, PebbleTemplate> templateCache;
 
         private boolean cacheActive = true;
 
+        private boolean reloadChangedTemplates = false;
+
         private Cache<BaseTagCacheKey, Object> tagCache;
 
         private EscaperExtension escaperExtension = new EscaperExtension();
 
+        private int maxPooledBuffers = BufferPool.DEFAULT_MAX_BUFFERS;
+
+        private int maxPooledBufferCapacity = BufferPool.DEFAULT_MAX_CAPACITY;
+
         /**
          * Creates the builder.
          */
@@ -350,17 +726,45 @@ public class PebbleEngine {
         /**
          * Sets the executor service which is required if using one of Pebble's multithreading features
          * such as the "parallel" tag.
+         * <p>
+         * If it is a {@link ForkJoinPool}, a thread of the pool which waits for a nested "parallel" tag
+         * runs other work of the pool in the meantime instead of blocking. On a JDK with virtual threads,
+         * an executor that starts a virtual thread per task suits "parallel" tags which mostly wait for
+         * slow data just as well.
          *
          * @param executorService The executor service
          * @return This builder object
          */
         public Builder executorService(ExecutorService executorService) {
             this.executorService = executorService;
+            this.parallelism = 0;
             return this;
         }
 
         /**
-         * Sets the cache used by the engine to store compiled PebbleTemplate instances.
+         * Runs the "parallel" tags on a new work-stealing {@link ForkJoinPool} with the given
+         * parallelism. Nested "parallel" tags can't starve the pool because its threads help out
+         * while they wait. This replaces a previously set executor service.
+         * <p>
+         * Every engine built afterwards creates its own pool, which is shut down by
+         * {@link PebbleEngine#shutdown()}.
+         *
+         * @param parallelism The amount of threads of the pool
+         * @return This builder object
+         */
+        public Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("The parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            this.executorService = null;
+            return this;
+        }
+
+        /**
+         * Sets the cache used by the engine to store compiled PebbleTemplate instances. The dependencies of
+         * the templates in a cache given here are only forgotten when the templates are invalidated through
+         * {@link PebbleEngine#invalidate(String)} or compiled again.
          *
          * @param templateCache The template cache
          * @return This builder object
@@ -427,6 +831,45 @@ public class PebbleEngine {
             return this;
         }
 
+        /**
+         * Enable/disable reloading cached templates whose source changed since they were compiled. Every time
+         * a template is retrieved, the loader is asked for a fingerprint of its source, i.e. the modification
+         * time and size of the file, and only templates whose fingerprint changed are compiled again. The
+         * loader has to implement {@link ReloadableLoader}; templates of other loaders are never reloaded.
+         *
+         * @param reloadChangedTemplates toggle to enable/disable reloading changed templates
+         * @return This builder object
+         */
+        public Builder reloadChangedTemplates(boolean reloadChangedTemplates) {
+            this.reloadChangedTemplates = reloadChangedTemplates;
+            return this;
+        }
+
+        /**
+         * Sets how many buffers of each kind a thread keeps for later renders, i.e. for the output of
+         * macros and "parallel" tags. Zero disables pooling.
+         *
+         * @param maxPooledBuffers The amount of buffers kept per thread
+         * @return This builder object
+         */
+        public Builder maxPooledBuffers(int maxPooledBuffers) {
+            this.maxPooledBuffers = maxPooledBuffers;
+            return this;
+        }
+
+        /**
+         * Sets the capacity in characters above which a buffer is discarded instead of being kept for
+         * later renders. Defaults to {@link BufferPool#DEFAULT_MAX_CAPACITY}; lower it when many threads
+         * render small templates and the retained memory matters.
+         *
+         * @param maxPooledBufferCapacity The largest capacity of a pooled buffer
+         * @return This builder object
+         */
+        public Builder maxPooledBufferCapacity(int maxPooledBufferCapacity) {
+            this.maxPooledBufferCapacity = maxPooledBufferCapacity;
+            return this;
+        }
+
         /**
          * Creates the PebbleEngine instance.
          *
@@ -455,22 +898,49 @@ public class PebbleEngine {
             }
 
 
+            DependencyGraph dependencyGraph = new DependencyGraph();
             if (cacheActive) {
                 // default caches
                 if (templateCache == null) {
-                    templateCache = CacheBuilder.newBuilder().maximumSize(200).build();
+                    templateCache = CacheBuilder.newBuilder().maximumSize(200)
+                            .removalListener(removeFrom(dependencyGraph)).build();
                 }
 
                 if (tagCache == null) {
                     tagCache = CacheBuilder.newBuilder().maximumSize(200).build();
                 }
             } else {
-                templateCache = CacheBuilder.newBuilder().maximumSize(0).build();
+                templateCache = CacheBuilder.newBuilder().maximumSize(0).removalListener(removeFrom(dependencyGraph))
+                        .build();
                 tagCache = CacheBuilder.newBuilder().maximumSize(0).build();
             }
 
+            // the engine owns a pool it creates itself
+            ExecutorService executorService = this.executorService;
+            if (parallelism > 0) {
+                executorService = new ForkJoinPool(parallelism);
+            }
+
             return new PebbleEngine(loader, syntax, strictVariables, defaultLocale, tagCache, templateCache,
-                    executorService, extensions);
+                    executorService, parallelism > 0, reloadChangedTemplates,
+                    new BufferPool(maxPooledBuffers, maxPooledBufferCapacity), dependencyGraph, extensions);
+        }
+
+        /**
+         * Removes the templates which leave a template cache from the dependency graph, unless they were
+         * replaced by a template which was compiled again and already recorded its dependencies.
+         */
+        private static RemovalListener<Object, PebbleTemplate> removeFrom(final DependencyGraph dependencyGraph) {
+            return new RemovalListener<Object, PebbleTemplate>() {
+
+                @Override
+                public void onRemoval(RemovalNotification<Object, PebbleTemplate> notification) {
+                    PebbleTemplate template = notification.getValue();
+                    if (template != null && notification.getCause() != RemovalCause.REPLACED) {
+                        dependencyGraph.removeTemplate(template.getName());
+                    }
+                }
+            };
         }
     }
 }
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble;
+
+import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.loader.FileLoader;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+
+/**
+ * Writes precompiled templates at build time, i.e. with the exec-maven-plugin.
+ * The precompiled templates are put onto the classpath and found by a
+ * {@link com.mitchellbosecke.pebble.loader.ClasspathLoader} with the same
+ * precompiled suffix.
+ * <p>
+ * The command line uses an engine with the default extensions. Applications
+ * with other syntax or operators have to call
+ * {@link #writePrecompiledTemplates(PebbleEngine, Collection, File, String)}
+ * with their own engine; otherwise their precompiled templates are ignored.
+ * <p>
+ * A precompiled template records the modification time and size of its
+ * source and is ignored if the source found next to it differs. The
+ * precompiler should therefore run on the templates as they are copied to
+ * the classpath, i.e. in the output directory after the resources were
+ * processed. Precompiled templates without a source next to them, or within
+ * a jar file, are used as they are.
+ *
+ * @author Mitchell
+ */
+public class Precompiler {
+
+    public static final String DEFAULT_SUFFIX = ".peb";
+
+    public static final String DEFAULT_PRECOMPILED_SUFFIX = ".pebc";
+
+    private Precompiler() {
+    }
+
+    /**
+     * Precompiles all the templates in a directory.
+     * <p>
+     * Arguments: source directory, target directory, suffix of the templates
+     * (optional, ".peb" by default), suffix of the precompiled templates
+     * (optional, ".pebc" by default).
+     *
+     * @param args The arguments
+     * @throws PebbleException If a template can not be loaded or lexed
+     * @throws IOException     If a precompiled template can not be written
+     */
+    public static void main(String[] args) throws PebbleException, IOException {
+        if (args.length < 2 || args.length > 4) {
+            throw new IllegalArgumentException(
+                    "Usage: Precompiler <source directory> <target directory> [suffix] [precompiled suffix]");
+        }
+        FileLoader loader = new FileLoader();
+        loader.setPrefix(args[0]);
+        loader.setSuffix(args.length > 2 ? args[2] : DEFAULT_SUFFIX);
+        PebbleEngine engine = new PebbleEngine.Builder().loader(loader).build();
+
+        writePrecompiledTemplates(engine, loader.listTemplateNames(), new File(args[1]),
+                args.length > 3 ? args[3] : DEFAULT_PRECOMPILED_SUFFIX);
+    }
+
+    /**
+     * Writes precompiled templates into a directory. The file of a template
+     * is named after the template and the precompiled suffix.
+     *
+     * @param engine            The engine to load and lex the templates with
+     * @param templateNames     The names of the templates
+     * @param directory         The target directory
+     * @param precompiledSuffix The suffix of the precompiled templates
+     * @throws PebbleException If a template can not be loaded or lexed
+     * @throws IOException     If a precompiled template can not be written
+     */
+    public static void writePrecompiledTemplates(PebbleEngine engine, Collection<String> templateNames,
+            File directory, String precompiledSuffix) throws PebbleException, IOException {
+        for (String templateName : templateNames) {
+            File file = new File(directory, templateName + precompiledSuffix);
+            File parent = file.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Could not create directory " + parent);
+            }
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+            try {
+                engine.writePrecompiledTemplate(templateName, out);
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.attributes;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Invokes a method or reads a field that was found via reflection by using a
+ * method handle instead of {@link Method#invoke(Object, Object...)} or
+ * {@link Field#get(Object)}.
+ * <p>
+ * The method handle is adapted once to a generic signature so that getters
+ * without arguments, the most common case, are invoked without boxing any
+ * arguments into an array.
+ *
+ * @author Mitchell
+ */
+public final class MemberAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SPREAD_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private final Member member;
+
+    /**
+     * Either of type (Object)Object or of type (Object, Object[])Object
+     * depending on whether the member takes arguments.
+     */
+    private final MethodHandle handle;
+
+    private final boolean withArguments;
+
+    private MemberAccessor(Member member, MethodHandle handle, boolean withArguments) {
+        this.member = member;
+        this.handle = handle;
+        this.withArguments = withArguments;
+    }
+
+    /**
+     * Creates an accessor for the given method or field.
+     *
+     * @param member The method or field
+     * @return The accessor or null if the member can not be accessed
+     */
+    public static MemberAccessor create(Member member) {
+        try {
+            if (member instanceof Method) {
+                Method method = findAccessibleMethod((Method) member);
+                MethodHandle handle = withReceiver(method, unreflect(method).asFixedArity());
+                int parameterCount = method.getParameterTypes().length;
+                if (parameterCount == 0) {
+                    return new MemberAccessor(member, handle.asType(GETTER_TYPE), false);
+                }
+                handle = handle.asType(handle.type().generic()).asSpreader(Object[].class, parameterCount);
+                return new MemberAccessor(member, handle.asType(SPREAD_TYPE), true);
+            } else if (member instanceof Field) {
+                MethodHandle handle = withReceiver(member, unreflectGetter((Field) member));
+                return new MemberAccessor(member, handle.asType(GETTER_TYPE), false);
+            }
+        } catch (IllegalAccessException e) {
+            // not accessible
+        }
+        return null;
+    }
+
+    /**
+     * Invokes the member on the given object.
+     *
+     * @param object         The object to invoke the member on
+     * @param argumentValues The arguments, ignored for fields and getters
+     * @return The result of the invocation
+     */
+    public Object invoke(Object object, Object[] argumentValues) {
+        try {
+            if (withArguments) {
+                return (Object) handle.invokeExact(object, argumentValues);
+            }
+            return (Object) handle.invokeExact(object);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the method or field which this accessor invokes.
+     *
+     * @return The member
+     */
+    public Member getMember() {
+        return member;
+    }
+
+    /**
+     * Static members are invoked through the same signature as instance
+     * members, the object they are looked up on is simply ignored.
+     */
+    private static MethodHandle withReceiver(Member member, MethodHandle handle) {
+        if (Modifier.isStatic(member.getModifiers())) {
+            return MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        return handle;
+    }
+
+    private static MethodHandle unreflect(Method method) throws IllegalAccessException {
+        if (isPublic(method)) {
+            return MethodHandles.publicLookup().unreflect(method);
+        }
+        makeAccessible(method);
+        return MethodHandles.lookup().unreflect(method);
+    }
+
+    private static MethodHandle unreflectGetter(Field field) throws IllegalAccessException {
+        if (isPublic(field)) {
+            return MethodHandles.publicLookup().unreflectGetter(field);
+        }
+        makeAccessible(field);
+        return MethodHandles.lookup().unreflectGetter(field);
+    }
+
+    /**
+     * A public method declared by a class that is not public itself (ex. the
+     * entries of a HashMap) can not be invoked from outside of its package. If
+     * the method overrides a method of a public superclass or interface, the
+     * overridden method is used instead.
+     *
+     * @param method The method found via reflection
+     * @return An equivalent method which can be invoked, if possible
+     */
+    private static Method findAccessibleMethod(Method method) {
+        if (isPublic(method)) {
+            return method;
+        }
+        Method result = findPublicMethod(method.getDeclaringClass(), method);
+        return result == null ? method : result;
+    }
+
+    private static Method findPublicMethod(Class<?> clazz, Method method) {
+        if (Modifier.isPublic(clazz.getModifiers())) {
+            try {
+                Method result = clazz.getDeclaredMethod(method.getName(), method.getParameterTypes());
+                if (Modifier.isPublic(result.getModifiers())) {
+                    return result;
+                }
+            } catch (NoSuchMethodException e) {
+                // keep looking up the hierarchy
+            }
+        }
+        for (Class<?> type : clazz.getInterfaces()) {
+            Method result = findPublicMethod(type, method);
+            if (result != null) {
+                return result;
+            }
+        }
+        Class<?> superclass = clazz.getSuperclass();
+        return superclass == null ? null : findPublicMethod(superclass, method);
+    }
+
+    private static boolean isPublic(Member member) {
+        return Modifier.isPublic(member.getModifiers())
+                && Modifier.isPublic(member.getDeclaringClass().getModifiers());
+    }
+
+    private static void makeAccessible(AccessibleObject object) {
+        try {
+            object.setAccessible(true);
+        } catch (RuntimeException e) {
+            // the lookup below will report the member as inaccessible
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.attributes;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Resolves the method or field that an attribute refers to and caches the
+ * result for all templates of an engine. Lookups which do not find a member
+ * are cached as well so that repeatedly accessing a missing attribute does not
+ * scan the methods of a class over and over again.
+ *
+ * @author Mitchell
+ */
+public class MemberAccessorRegistry {
+
+    private static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+    private final Cache<MemberKey, Optional<MemberAccessor>> accessors;
+
+    /**
+     * Creates a registry with a default maximum size.
+     */
+    public MemberAccessorRegistry() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a registry which holds at most the given amount of resolved
+     * members.
+     *
+     * @param maximumSize The maximum amount of cached lookups
+     */
+    public MemberAccessorRegistry(long maximumSize) {
+        this.accessors = CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    /**
+     * Returns the accessor for an attribute of the given class. It will look
+     * up attributes in the following order: get method, is method, has
+     * method, public method, public field.
+     *
+     * @param clazz          The class of the object the attribute is accessed on
+     * @param attributeName  The name of the attribute
+     * @param parameterTypes The types of the arguments, an element is null if the
+     *                       argument is null
+     * @return The accessor or null if no accessible member exists
+     */
+    public MemberAccessor getAccessor(Class<?> clazz, String attributeName, Class<?>[] parameterTypes) {
+        MemberKey key = new MemberKey(clazz, attributeName, parameterTypes);
+        Optional<MemberAccessor> accessor = accessors.getIfPresent(key);
+        if (accessor == null) {
+            Member member = reflect(clazz, attributeName, parameterTypes);
+            accessor = Optional.fromNullable(member == null ? null : MemberAccessor.create(member));
+            accessors.put(key, accessor);
+        }
+        return accessor.orNull();
+    }
+
+    /**
+     * Returns the hit and miss statistics of this registry.
+     *
+     * @return The statistics
+     */
+    public CacheStats getStats() {
+        return accessors.stats();
+    }
+
+    /**
+     * Returns the amount of cached lookups, including those which did not find
+     * a member.
+     *
+     * @return The amount of cached lookups
+     */
+    public long size() {
+        return accessors.size();
+    }
+
+    /**
+     * Removes all cached lookups.
+     */
+    public void clear() {
+        accessors.invalidateAll();
+    }
+
+    /**
+     * Performs the actual reflection to obtain a "Member" from a class.
+     *
+     * @param clazz
+     * @param attributeName
+     * @param parameterTypes
+     * @return
+     */
+    private Member reflect(Class<?> clazz, String attributeName, Class<?>[] parameterTypes) {
+
+        Member result = null;
+
+        // capitalize first letter of attribute for the following attempts
+        String attributeCapitalized = Character.toUpperCase(attributeName.charAt(0)) + attributeName.substring(1);
+
+        // check get method
+        result = findMethod(clazz, "get" + attributeCapitalized, parameterTypes);
+
+        // check is method
+        if (result == null) {
+            result = findMethod(clazz, "is" + attributeCapitalized, parameterTypes);
+        }
+
+        // check has method
+        if (result == null) {
+            result = findMethod(clazz, "has" + attributeCapitalized, parameterTypes);
+        }
+
+        // check if attribute is a public method
+        if (result == null) {
+            result = findMethod(clazz, attributeName, parameterTypes);
+        }
+
+        // public field
+        if (result == null) {
+            try {
+                result = clazz.getField(attributeName);
+            } catch (NoSuchFieldException e) {
+
+            } catch (SecurityException e) {
+
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds an appropriate method by comparing if parameter types are
+     * compatible. This is more relaxed than class.getMethod.
+     *
+     * @param clazz
+     * @param name
+     * @param requiredTypes
+     * @return
+     */
+    private Method findMethod(Class<?> clazz, String name, Class<?>[] requiredTypes) {
+        Method result = null;
+
+        Method[] candidates = clazz.getMethods();
+
+        for (Method candidate : candidates) {
+            if (!candidate.getName().equalsIgnoreCase(name)) {
+                continue;
+            }
+
+            Class<?>[] types = candidate.getParameterTypes();
+
+            if (types.length != requiredTypes.length) {
+                continue;
+            }
+
+            boolean compatibleTypes = true;
+            for (int i = 0; i < types.length; i++) {
+                if (requiredTypes[i] != null && !widen(types[i]).isAssignableFrom(requiredTypes[i])) {
+                    compatibleTypes = false;
+                    break;
+                }
+            }
+
+            if (compatibleTypes) {
+                result = candidate;
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Performs a widening conversion (primitive to boxed type)
+     *
+     * @param clazz
+     * @return
+     */
+    private Class<?> widen(Class<?> clazz) {
+        Class<?> result = clazz;
+        if (clazz == int.class) {
+            result = Integer.class;
+        } else if (clazz == long.class) {
+            result = Long.class;
+        } else if (clazz == double.class) {
+            result = Double.class;
+        } else if (clazz == float.class) {
+            result = Float.class;
+        } else if (clazz == short.class) {
+            result = Short.class;
+        } else if (clazz == byte.class) {
+            result = Byte.class;
+        } else if (clazz == boolean.class) {
+            result = Boolean.class;
+        }
+        return result;
+    }
+
+    private static class MemberKey {
+
+        private final Class<?> clazz;
+
+        private final String attributeName;
+
+        private final Class<?>[] parameterTypes;
+
+        private final int hashCode;
+
+        private MemberKey(Class<?> clazz, String attributeName, Class<?>[] parameterTypes) {
+            this.clazz = clazz;
+            this.attributeName = attributeName;
+            this.parameterTypes = parameterTypes;
+
+            int result = clazz.hashCode();
+            result = 31 * result + attributeName.hashCode();
+            result = 31 * result + Arrays.hashCode(parameterTypes);
+            this.hashCode = result;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            MemberKey that = (MemberKey) o;
+            return clazz.equals(that.clazz) && attributeName.equals(that.attributeName)
+                    && Arrays.equals(parameterTypes, that.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.extension;
+
+import java.util.Map;
+
+/**
+ * Adapts the map based {@link Filter#apply(Object, Map)} method to
+ * {@link ArgumentsFilter#apply(Object, Arguments)}.
+ *
+ * @author Mitchell
+ */
+public abstract class AbstractArgumentsFilter implements ArgumentsFilter {
+
+    /**
+     * Whether a subclass overrides {@link Filter#apply(Object, Map)}, i.e. it
+     * extends one of the core filters and customizes the map based method. Such
+     * a filter is called with a map of arguments so that the override is not
+     * bypassed.
+     */
+    private final boolean mapBased = Overrides.isOverridden(this, AbstractArgumentsFilter.class,
+            "apply", Object.class, Map.class);
+
+    /**
+     * Returns whether the filter has to be called through
+     * {@link Filter#apply(Object, Map)} instead of
+     * {@link ArgumentsFilter#apply(Object, Arguments)}.
+     *
+     * @return Whether the map based method is overridden
+     */
+    public boolean isMapBased() {
+        return mapBased;
+    }
+
+    @Override
+    public Object apply(Object input, Map<String, Object> args) {
+        return apply(input, Arguments.fromMap(getArgumentNames(), args));
+    }
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.extension;
+
+import java.util.Map;
+
+/**
+ * Adapts the map based {@link Function#execute(Map)} method to
+ * {@link ArgumentsFunction#execute(Arguments)}.
+ *
+ * @author Mitchell
+ */
+public abstract class AbstractArgumentsFunction implements ArgumentsFunction {
+
+    /**
+     * Whether a subclass overrides {@link Function#execute(Map)}, i.e. it
+     * extends one of the core functions and customizes the map based method.
+     * Such a function is called with a map of arguments so that the override is
+     * not bypassed.
+     */
+    private final boolean mapBased = Overrides.isOverridden(this, AbstractArgumentsFunction.class,
+            "execute", Map.class);
+
+    /**
+     * Returns whether the function has to be called through
+     * {@link Function#execute(Map)} instead of
+     * {@link ArgumentsFunction#execute(Arguments)}.
+     *
+     * @return Whether the map based method is overridden
+     */
+    public boolean isMapBased() {
+        return mapBased;
+    }
+
+    @Override
+    public Object execute(Map<String, Object> args) {
+        return execute(Arguments.fromMap(getArgumentNames(), args));
+    }
+}
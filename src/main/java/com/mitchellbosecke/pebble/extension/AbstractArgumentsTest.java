@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.extension;
+
+import java.util.Map;
+
+/**
+ * Adapts the map based {@link Test#apply(Object, Map)} method to
+ * {@link ArgumentsTest#apply(Object, Arguments)}.
+ *
+ * @author Mitchell
+ */
+public abstract class AbstractArgumentsTest implements ArgumentsTest {
+
+    /**
+     * Whether a subclass overrides {@link Test#apply(Object, Map)}, i.e. it
+     * extends one of the core tests and customizes the map based method. Such a
+     * test is called with a map of arguments so that the override is not
+     * bypassed.
+     */
+    private final boolean mapBased = Overrides.isOverridden(this, AbstractArgumentsTest.class,
+            "apply", Object.class, Map.class);
+
+    /**
+     * Returns whether the test has to be called through
+     * {@link Test#apply(Object, Map)} instead of
+     * {@link ArgumentsTest#apply(Object, Arguments)}.
+     *
+     * @return Whether the map based method is overridden
+     */
+    public boolean isMapBased() {
+        return mapBased;
+    }
+
+    @Override
+    public boolean apply(Object input, Map<String, Object> args) {
+        return apply(input, Arguments.fromMap(getArgumentNames(), args));
+    }
+}
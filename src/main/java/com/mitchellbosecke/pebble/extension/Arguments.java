@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.extension;
+
+import com.mitchellbosecke.pebble.template.EvaluationContext;
+import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The arguments of a filter, test or function invocation.
+ * <p>
+ * The values are stored in the order of
+ * {@link NamedArguments#getArgumentNames()}; which positional or named
+ * argument belongs to which index is only worked out once per invocation in a
+ * template. If the invocable does not declare any argument names, the values
+ * are simply the positional arguments in the order they were given.
+ * <p>
+ * The template and the evaluation context are available directly instead of
+ * through the "_self" and "_context" entries of the argument map.
+ *
+ * @author Mitchell
+ */
+public final class Arguments {
+
+    /**
+     * Marks an argument which was not given by the template.
+     */
+    private static final Object MISSING = new Object();
+
+    private final PebbleTemplateImpl self;
+
+    private final EvaluationContext context;
+
+    private final List<String> names;
+
+    private final Object[] values;
+
+    /**
+     * Constructor
+     *
+     * @param self    The template being evaluated
+     * @param context The evaluation context
+     * @param names   The argument names of the invocable, or null if it only
+     *                accepts positional arguments
+     * @param size    The amount of arguments
+     */
+    public Arguments(PebbleTemplateImpl self, EvaluationContext context, List<String> names, int size) {
+        this.self = self;
+        this.context = context;
+        this.names = names;
+        this.values = new Object[size];
+        Arrays.fill(values, MISSING);
+    }
+
+    /**
+     * Creates the arguments out of the map which is passed to the map based
+     * {@link Filter}, {@link Test} and {@link Function} methods.
+     *
+     * @param names The argument names of the invocable, or null if it only
+     *              accepts positional arguments
+     * @param args  The argument map, may be null
+     * @return The arguments
+     */
+    public static Arguments fromMap(List<String> names, Map<String, Object> args) {
+        if (args == null) {
+            args = new HashMap<String, Object>();
+        }
+        PebbleTemplateImpl self = (PebbleTemplateImpl) args.get("_self");
+        EvaluationContext context = (EvaluationContext) args.get("_context");
+
+        List<String> keys = names;
+        if (keys == null) {
+            keys = new ArrayList<String>();
+            while (args.containsKey(String.valueOf(keys.size()))) {
+                keys.add(String.valueOf(keys.size()));
+            }
+        }
+
+        Arguments arguments = new Arguments(self, context, names, keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            if (args.containsKey(keys.get(i))) {
+                arguments.set(i, args.get(keys.get(i)));
+            }
+        }
+        return arguments;
+    }
+
+    public void set(int index, Object value) {
+        values[index] = value;
+    }
+
+    /**
+     * Returns the value of an argument or null if it was not given.
+     *
+     * @param index The index of the argument
+     * @return The value of the argument
+     */
+    public Object get(int index) {
+        Object value = values[index];
+        return value == MISSING ? null : value;
+    }
+
+    /**
+     * Returns the value of an argument or null if it was not given. Looking up
+     * an argument by its index is faster.
+     *
+     * @param name The name of the argument
+     * @return The value of the argument
+     */
+    public Object get(String name) {
+        int index = names == null ? -1 : names.indexOf(name);
+        return index < 0 ? null : get(index);
+    }
+
+    /**
+     * Returns whether the template gave a value, which may be null, for an
+     * argument.
+     *
+     * @param index The index of the argument
+     * @return Whether the argument was given
+     */
+    public boolean isSet(int index) {
+        return values[index] != MISSING;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public PebbleTemplateImpl getTemplate() {
+        return self;
+    }
+
+    public EvaluationContext getContext() {
+        return context;
+    }
+
+    /**
+     * Converts the arguments into the map which is passed to the map based
+     * {@link Filter}, {@link Test} and {@link Function} methods.
+     *
+     * @return The argument map
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> result = new HashMap<String, Object>();
+        for (int i = 0; i < values.length; i++) {
+            if (isSet(i)) {
+                result.put(names == null ? String.valueOf(i) : names.get(i), values[i]);
+            }
+        }
+        result.put("_self", self);
+        result.put("_context", context);
+        return result;
+    }
+}
@@ -0,0 +1,21 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.extension;
+
+/**
+ * A function which receives its arguments as an {@link Arguments} object
+ * instead of a map. Extend {@link AbstractArgumentsFunction} to keep the map
+ * based method working.
+ *
+ * @author Mitchell
+ */
+public interface ArgumentsFunction extends Function {
+
+    Object execute(Arguments args);
+}
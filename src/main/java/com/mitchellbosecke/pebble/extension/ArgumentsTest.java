@@ -0,0 +1,21 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.extension;
+
+/**
+ * A test which receives its arguments as an {@link Arguments} object instead
+ * of a map. Extend {@link AbstractArgumentsTest} to keep the map based method
+ * working.
+ *
+ * @author Mitchell
+ */
+public interface ArgumentsTest extends Test {
+
+    boolean apply(Object input, Arguments args);
+}
@@ -136,6 +136,18 @@ public class ExtensionRegistry {
         return this.functions.get(name);
     }
 
+    public Map<String, Filter> getFilters() {
+        return this.filters;
+    }
+
+    public Map<String, Test> getTests() {
+        return this.tests;
+    }
+
+    public Map<String, Function> getFunctions() {
+        return this.functions;
+    }
+
     public Map<String, BinaryOperator> getBinaryOperators() {
         return this.binaryOperators;
     }
@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.extension;
+
+/**
+ * Finds out whether an extension overrides one of the map based methods
+ * adapted by {@link AbstractArgumentsFilter}, {@link AbstractArgumentsTest}
+ * and {@link AbstractArgumentsFunction}.
+ *
+ * @author Mitchell
+ */
+final class Overrides {
+
+    private Overrides() {
+    }
+
+    /**
+     * Checks if the class of an instance declares the given public method
+     * below the given base class.
+     *
+     * @param instance       The extension
+     * @param base           The class which declares the adapting method
+     * @param name           The name of the method
+     * @param parameterTypes The parameter types of the method
+     * @return Whether the method is overridden
+     */
+    static boolean isOverridden(Object instance, Class<?> base, String name, Class<?>... parameterTypes) {
+        try {
+            return instance.getClass().getMethod(name, parameterTypes).getDeclaringClass() != base;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
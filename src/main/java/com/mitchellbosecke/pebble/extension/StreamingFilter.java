@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.extension;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A filter which is able to write its result directly into the output of a
+ * print tag instead of returning it as a string which is written afterwards.
+ * <p>
+ * The filter is still used through {@link #apply(Object, Arguments)} if its
+ * result is not printed right away, i.e. within a "set" tag.
+ *
+ * @author Mitchell
+ */
+public interface StreamingFilter extends ArgumentsFilter {
+
+    /**
+     * Writes the result of the filter. Nothing is written if the result is
+     * null, otherwise the written text has to be the same as the string
+     * representation of {@link #apply(Object, Arguments)}.
+     *
+     * @param input  The input of the filter
+     * @param args   The arguments
+     * @param writer The writer to write the result to
+     * @throws IOException Thrown by the writer
+     */
+    void apply(Object input, Arguments args, Writer writer) throws IOException;
+
+    /**
+     * Returns a writer which applies the filter to all the text that is
+     * written to it and writes the result to the given writer. It is used to
+     * filter the output of another streaming filter without creating it as a
+     * whole first. The returned writer is closed once everything has been
+     * written to it; closing it must not close the given writer.
+     *
+     * @param writer The writer to write the result to
+     * @param args   The arguments
+     * @return The wrapping writer or null if the filter can only be applied to
+     * the input as a whole
+     */
+    Writer wrap(Writer writer, Arguments args);
+}
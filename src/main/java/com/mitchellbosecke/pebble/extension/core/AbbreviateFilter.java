@@ -9,13 +9,13 @@
 package com.mitchellbosecke.pebble.extension.core;
 
 import com.mitchellbosecke.pebble.error.PebbleException;
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
-public class AbbreviateFilter implements Filter {
+public class AbbreviateFilter extends AbstractArgumentsFilter {
 
     private final List<String> argumentNames = new ArrayList<String>();
 
@@ -29,12 +29,12 @@ public class AbbreviateFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
         if (input == null) {
             return null;
         }
         String value = (String) input;
-        int maxWidth = ((Long) args.get("length")).intValue();
+        int maxWidth = ((Long) args.get(0)).intValue();
 
         if(maxWidth < 0){
             throw new RuntimeException("Invalid argument to abbreviate filter; must be greater than zero");
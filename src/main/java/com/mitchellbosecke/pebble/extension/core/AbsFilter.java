@@ -9,11 +9,11 @@
 package com.mitchellbosecke.pebble.extension.core;
 
 import java.util.List;
-import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
-public class AbsFilter implements Filter {
+public class AbsFilter extends AbstractArgumentsFilter {
 
     @Override
     public List<String> getArgumentNames() {
@@ -21,7 +21,7 @@ public class AbsFilter implements Filter {
     }
 
     @Override
-    public Number apply(Object input, Map<String, Object> args) {
+    public Number apply(Object input, Arguments args) {
         if (input == null) {
             throw new IllegalArgumentException("Can not pass null value to \"abs\" filter.");
         }
@@ -8,13 +8,13 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.extension.core;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
-public class CapitalizeFilter implements Filter {
+public class CapitalizeFilter extends AbstractArgumentsFilter {
 
     @Override
     public List<String> getArgumentNames() {
@@ -22,7 +22,7 @@ public class CapitalizeFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
         if (input == null) {
             return null;
         }
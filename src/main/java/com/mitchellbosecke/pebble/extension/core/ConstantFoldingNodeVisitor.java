@@ -0,0 +1,308 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.extension.core;
+
+import com.mitchellbosecke.pebble.extension.AbstractNodeVisitor;
+import com.mitchellbosecke.pebble.node.ArgumentsNode;
+import com.mitchellbosecke.pebble.node.BodyNode;
+import com.mitchellbosecke.pebble.node.ForNode;
+import com.mitchellbosecke.pebble.node.IfNode;
+import com.mitchellbosecke.pebble.node.NamedArgumentNode;
+import com.mitchellbosecke.pebble.node.PositionalArgumentNode;
+import com.mitchellbosecke.pebble.node.PrintNode;
+import com.mitchellbosecke.pebble.node.RenderableNode;
+import com.mitchellbosecke.pebble.node.SetNode;
+import com.mitchellbosecke.pebble.node.TestInvocationExpression;
+import com.mitchellbosecke.pebble.node.TextNode;
+import com.mitchellbosecke.pebble.node.expression.*;
+import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+import com.mitchellbosecke.pebble.utils.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Evaluates expressions which only consist of literals while the template is
+ * compiled instead of every time it is rendered. It also merges adjacent text
+ * nodes and removes the branches of an "if" tag that can never be rendered.
+ * <p>
+ * Only the built-in operators are folded; filters, tests, functions and
+ * operators provided by extensions may depend on the evaluation context or
+ * have side effects. If an expression fails to evaluate, it is left alone so
+ * that the error is still reported while rendering.
+ *
+ * @author Mitchell
+ */
+public class ConstantFoldingNodeVisitor extends AbstractNodeVisitor {
+
+    private static final Set<Class<?>> FOLDABLE_OPERATORS = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+            AddExpression.class, SubtractExpression.class, MultiplyExpression.class, DivideExpression.class,
+            ModulusExpression.class, ConcatenateExpression.class, EqualsExpression.class, NotEqualsExpression.class,
+            GreaterThanExpression.class, GreaterThanEqualsExpression.class, LessThanExpression.class,
+            LessThanEqualsExpression.class, AndExpression.class, OrExpression.class, ContainsExpression.class,
+            UnaryMinusExpression.class, UnaryPlusExpression.class, UnaryNotExpression.class));
+
+    public ConstantFoldingNodeVisitor(PebbleTemplateImpl template) {
+        super(template);
+    }
+
+    @Override
+    public void visit(ArgumentsNode node) {
+        if (node.getNamedArgs() != null) {
+            for (NamedArgumentNode arg : node.getNamedArgs()) {
+                if (arg.getValueExpression() != null) {
+                    arg.setValueExpression(fold(arg.getValueExpression()));
+                }
+            }
+        }
+        if (node.getPositionalArgs() != null) {
+            for (PositionalArgumentNode arg : node.getPositionalArgs()) {
+                arg.setValueExpression(fold(arg.getValueExpression()));
+            }
+        }
+    }
+
+    @Override
+    public void visit(BodyNode node) {
+        List<RenderableNode> children = node.getChildren();
+
+        for (int i = 0; i < children.size(); i++) {
+            RenderableNode child = children.get(i);
+            child.accept(this);
+
+            if (child instanceof IfNode) {
+                RenderableNode replacement = removeDeadBranches((IfNode) child);
+                if (replacement == null) {
+                    children.remove(i--);
+                } else {
+                    children.set(i, replacement);
+                }
+            }
+        }
+
+        mergeTextNodes(children);
+    }
+
+    @Override
+    public void visit(ForNode node) {
+        node.setIterable(foldReadOnly(node.getIterable()));
+        super.visit(node);
+    }
+
+    @Override
+    public void visit(PrintNode node) {
+        node.setExpression(fold(node.getExpression()));
+    }
+
+    @Override
+    public void visit(SetNode node) {
+        node.setValue(fold(node.getValue()));
+    }
+
+    /**
+     * Returns an equivalent expression which is cheaper to evaluate, or the
+     * given expression itself.
+     */
+    @SuppressWarnings("unchecked")
+    private Expression<?> fold(Expression<?> expression) {
+        if (expression instanceof BinaryExpression) {
+            BinaryExpression<?> binary = (BinaryExpression<?>) expression;
+            if (binary instanceof ContainsExpression) {
+                binary.setLeft(foldReadOnly(binary.getLeftExpression()));
+                binary.setRight(foldReadOnly(binary.getRightExpression()));
+            } else {
+                binary.setLeft(fold(binary.getLeftExpression()));
+                binary.setRight(fold(binary.getRightExpression()));
+            }
+            if (isFoldable(binary) && isConstant(binary.getLeftExpression())
+                    && isConstant(binary.getRightExpression())) {
+                return evaluate(binary);
+            }
+        } else if (expression instanceof UnaryExpression) {
+            UnaryExpression unary = (UnaryExpression) expression;
+            unary.setChildExpression(fold(unary.getChildExpression()));
+            if (isFoldable(unary) && isConstant(unary.getChildExpression())) {
+                return evaluate(unary);
+            }
+        } else if (expression instanceof TernaryExpression) {
+            TernaryExpression ternary = (TernaryExpression) expression;
+            ternary.setExpression1((Expression<Boolean>) fold(ternary.getExpression1()));
+            ternary.setExpression2(fold(ternary.getExpression2()));
+            ternary.setExpression3(fold(ternary.getExpression3()));
+
+            /*
+             * The chosen branch itself replaces the ternary expression so that
+             * the escaper treats it the same as before.
+             */
+            if (isConstant(ternary.getExpression1())) {
+                Object condition = constantValue(ternary.getExpression1());
+                if (condition == null || Boolean.FALSE.equals(condition)) {
+                    return ternary.getExpression3();
+                } else if (Boolean.TRUE.equals(condition)) {
+                    return ternary.getExpression2();
+                }
+            }
+        } else if (expression instanceof ArrayExpression) {
+            return foldArray((ArrayExpression) expression, false);
+        } else if (expression instanceof MapExpression) {
+            return foldMap((MapExpression) expression, false);
+        } else if (expression instanceof FilterInvocationExpression) {
+            visit(((FilterInvocationExpression) expression).getArgs());
+        } else if (expression instanceof FunctionOrMacroInvocationExpression) {
+            visit(((FunctionOrMacroInvocationExpression) expression).getArguments());
+        } else if (expression instanceof TestInvocationExpression) {
+            visit(((TestInvocationExpression) expression).getArgs());
+        }
+        return expression;
+    }
+
+    /**
+     * Folds an expression whose result is only read and never kept by the
+     * template, i.e. the iterable of a "for" tag or an operand of the
+     * "contains" operator. Lists and maps which only consist of literals
+     * become unmodifiable constants, anywhere else they are created for every
+     * evaluation because the template may modify them.
+     */
+    private Expression<?> foldReadOnly(Expression<?> expression) {
+        if (expression instanceof ArrayExpression) {
+            return foldArray((ArrayExpression) expression, true);
+        } else if (expression instanceof MapExpression) {
+            return foldMap((MapExpression) expression, true);
+        }
+        return fold(expression);
+    }
+
+    private Expression<?> foldArray(ArrayExpression array, boolean readOnly) {
+        List<Expression<?>> values = new ArrayList<Expression<?>>(array.getValues().size());
+        boolean constant = readOnly;
+        for (Expression<?> value : array.getValues()) {
+            Expression<?> folded = value == null ? null : readOnly ? foldReadOnly(value) : fold(value);
+            constant = constant && (folded == null || isConstant(folded));
+            values.add(folded);
+        }
+        if (constant) {
+            List<Object> result = new ArrayList<Object>(values.size());
+            for (Expression<?> value : values) {
+                result.add(value == null ? null : constantValue(value));
+            }
+            return new ConstantExpression(Collections.unmodifiableList(result), array.getLineNumber());
+        }
+        return new ArrayExpression(values, array.getLineNumber());
+    }
+
+    private Expression<?> foldMap(MapExpression map, boolean readOnly) {
+        Map<Expression<?>, Expression<?>> entries = new HashMap<Expression<?>, Expression<?>>();
+        boolean constant = readOnly;
+        for (Entry<Expression<?>, Expression<?>> entry : map.getEntries().entrySet()) {
+            Expression<?> key = entry.getKey() == null ? null : fold(entry.getKey());
+            Expression<?> value = entry.getValue() == null ? null
+                    : readOnly ? foldReadOnly(entry.getValue()) : fold(entry.getValue());
+            constant = constant && (key == null || isConstant(key)) && (value == null || isConstant(value));
+            entries.put(key, value);
+        }
+        if (constant) {
+            Map<Object, Object> result = new HashMap<Object, Object>();
+            for (Entry<Expression<?>, Expression<?>> entry : entries.entrySet()) {
+                result.put(entry.getKey() == null ? null : constantValue(entry.getKey()),
+                        entry.getValue() == null ? null : constantValue(entry.getValue()));
+            }
+            return new ConstantExpression(Collections.unmodifiableMap(result), map.getLineNumber());
+        }
+        return new MapExpression(entries, map.getLineNumber());
+    }
+
+    /**
+     * Evaluates an operator whose operands are all constant.
+     */
+    private Expression<?> evaluate(Expression<?> expression) {
+        try {
+            return new ConstantExpression(expression.evaluate(getTemplate(), null), expression.getLineNumber());
+        } catch (Exception e) {
+            return expression;
+        }
+    }
+
+    /**
+     * Returns the node which replaces an "if" tag after the conditions which
+     * are always false have been removed, or null if nothing is left. A
+     * condition which is always true becomes the else branch and any conditions
+     * following it are removed.
+     */
+    private RenderableNode removeDeadBranches(IfNode node) {
+        List<Pair<Expression<?>, BodyNode>> conditionsWithBodies = new ArrayList<Pair<Expression<?>, BodyNode>>();
+        BodyNode elseBody = node.getElseBody();
+        boolean changed = false;
+
+        for (Pair<Expression<?>, BodyNode> conditionWithBody : node.getConditionsWithBodies()) {
+            Expression<?> condition = fold(conditionWithBody.getLeft());
+
+            if (isConstant(condition)) {
+                Object value = constantValue(condition);
+                if (value == null || Boolean.FALSE.equals(value)) {
+                    changed = true;
+                    continue;
+                } else if (Boolean.TRUE.equals(value)) {
+                    elseBody = conditionWithBody.getRight();
+                    changed = true;
+                    break;
+                }
+            }
+            changed = changed || condition != conditionWithBody.getLeft();
+            conditionsWithBodies.add(new Pair<Expression<?>, BodyNode>(condition, conditionWithBody.getRight()));
+        }
+
+        if (!changed) {
+            return node;
+        } else if (conditionsWithBodies.isEmpty()) {
+            return elseBody;
+        }
+        return new IfNode(node.getLineNumber(), conditionsWithBodies, elseBody);
+    }
+
+    private void mergeTextNodes(List<RenderableNode> children) {
+        for (int i = children.size() - 1; i > 0; i--) {
+            RenderableNode previous = children.get(i - 1);
+            RenderableNode current = children.get(i);
+            if (previous instanceof TextNode && current instanceof TextNode) {
+                String text = new String(((TextNode) previous).getData()) + new String(((TextNode) current).getData());
+                children.set(i - 1, new TextNode(text, ((TextNode) previous).getLineNumber()));
+                children.remove(i);
+            }
+        }
+    }
+
+    private boolean isFoldable(Expression<?> expression) {
+        return FOLDABLE_OPERATORS.contains(expression.getClass());
+    }
+
+    private boolean isConstant(Expression<?> expression) {
+        return expression instanceof ConstantExpression || expression instanceof LiteralStringExpression
+                || expression instanceof LiteralLongExpression || expression instanceof LiteralDoubleExpression
+                || expression instanceof LiteralBooleanExpression || expression instanceof LiteralNullExpression;
+    }
+
+    private Object constantValue(Expression<?> expression) {
+        if (expression instanceof ConstantExpression) {
+            return ((ConstantExpression) expression).getValue();
+        }
+        try {
+            return expression.evaluate(getTemplate(), null);
+        } catch (Exception e) {
+            // literals do not throw exceptions
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -140,6 +140,7 @@ public class CoreExtension extends AbstractExtension {
     public List<NodeVisitorFactory> getNodeVisitors() {
         List<NodeVisitorFactory> visitors = new ArrayList<NodeVisitorFactory>();
         visitors.add(new MacroAndBlockRegistrantNodeVisitorFactory());
+        visitors.add(new ConstantFoldingNodeVisitorFactory());
         return visitors;
     }
 
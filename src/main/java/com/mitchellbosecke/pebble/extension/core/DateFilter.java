@@ -8,16 +8,16 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.extension.core;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 import com.mitchellbosecke.pebble.extension.escaper.SafeString;
-import com.mitchellbosecke.pebble.template.EvaluationContext;
 
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
-public class DateFilter implements Filter {
+public class DateFilter extends AbstractArgumentsFilter {
 
     private final List<String> argumentNames = new ArrayList<String>();
 
@@ -32,7 +32,7 @@ public class DateFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
         if (input == null) {
             return null;
         }
@@ -41,13 +41,12 @@ public class DateFilter implements Filter {
         DateFormat existingFormat = null;
         DateFormat intendedFormat = null;
 
-        EvaluationContext context = (EvaluationContext) args.get("_context");
-        Locale locale = context.getLocale();
+        Locale locale = args.getContext().getLocale();
 
-        intendedFormat = new SimpleDateFormat((String) args.get("format"), locale);
+        intendedFormat = new SimpleDateFormat((String) args.get(0), locale);
 
-        if (args.get("existingFormat") != null) {
-            existingFormat = new SimpleDateFormat((String) args.get("existingFormat"), locale);
+        if (args.get(1) != null) {
+            existingFormat = new SimpleDateFormat((String) args.get(1), locale);
             try {
                 date = existingFormat.parse((String) input);
             } catch (ParseException e) {
@@ -9,17 +9,18 @@
 package com.mitchellbosecke.pebble.extension.core;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Filter;
-import com.mitchellbosecke.pebble.extension.Test;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
+import com.mitchellbosecke.pebble.extension.ArgumentsTest;
 
-public class DefaultFilter implements Filter {
+public class DefaultFilter extends AbstractArgumentsFilter {
 
     private final List<String> argumentNames = new ArrayList<String>();
 
+    private final ArgumentsTest emptyTest = new EmptyTest();
+
     public DefaultFilter() {
         argumentNames.add("default");
     }
@@ -30,12 +31,11 @@ public class DefaultFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
 
-        Object defaultObj = args.get("default");
+        Object defaultObj = args.get(0);
 
-        Test emptyTest = new EmptyTest();
-        if (emptyTest.apply(input, new HashMap<String, Object>())) {
+        if (emptyTest.apply(input, args)) {
             return defaultObj;
         }
         return input;
@@ -1,6 +1,6 @@
 package com.mitchellbosecke.pebble.extension.core;
 
-import java.util.Map;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
 /**
  * Implementation for the test function 'defined'.
@@ -14,7 +14,8 @@ import java.util.Map;
  */
 public class DefinedTest extends NullTest {
 
-    public boolean apply(Object input, Map<String, Object> args) {
+    @Override
+    public boolean apply(Object input, Arguments args) {
         return !super.apply(input, args);
     }
 
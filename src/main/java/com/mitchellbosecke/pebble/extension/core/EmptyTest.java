@@ -12,9 +12,10 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Test;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsTest;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
-public class EmptyTest implements Test {
+public class EmptyTest extends AbstractArgumentsTest {
 
     @Override
     public List<String> getArgumentNames() {
@@ -22,7 +23,7 @@ public class EmptyTest implements Test {
     }
 
     @Override
-    public boolean apply(Object input, Map<String, Object> args) {
+    public boolean apply(Object input, Arguments args) {
         boolean isEmpty = input == null;
 
         if (!isEmpty && input instanceof String) {
@@ -11,9 +11,9 @@ package com.mitchellbosecke.pebble.extension.core;
 import java.lang.reflect.Array;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
 /**
  * Returns the first element of a collection
@@ -21,7 +21,7 @@ import com.mitchellbosecke.pebble.extension.Filter;
  * @author mbosecke
  *
  */
-public class FirstFilter implements Filter {
+public class FirstFilter extends AbstractArgumentsFilter {
 
     @Override
     public List<String> getArgumentNames() {
@@ -29,7 +29,7 @@ public class FirstFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
         if (input == null) {
             return null;
         }
@@ -9,11 +9,11 @@
 package com.mitchellbosecke.pebble.extension.core;
 
 import java.util.List;
-import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Test;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsTest;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
-public class IterableTest implements Test {
+public class IterableTest extends AbstractArgumentsTest {
 
     @Override
     public List<String> getArgumentNames() {
@@ -21,7 +21,7 @@ public class IterableTest implements Test {
     }
 
     @Override
-    public boolean apply(Object input, Map<String, Object> args) {
+    public boolean apply(Object input, Arguments args) {
 
         return input instanceof Iterable;
     }
@@ -8,12 +8,15 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.extension.core;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
+import com.mitchellbosecke.pebble.extension.StreamingFilter;
 
 /**
  * Concatenates all entries of a collection, optionally glued together with a
@@ -22,7 +25,7 @@ import com.mitchellbosecke.pebble.extension.Filter;
  * @author mbosecke
  *
  */
-public class JoinFilter implements Filter {
+public class JoinFilter extends AbstractArgumentsFilter implements StreamingFilter {
 
     private final List<String> argumentNames = new ArrayList<String>();
 
@@ -36,31 +39,50 @@ public class JoinFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
         if (input == null) {
             return null;
         }
 
-        @SuppressWarnings("unchecked")
-        Collection<Object> inputCollection = (Collection<Object>) input;
-
         StringBuilder builder = new StringBuilder();
+        try {
+            join(input, args, builder);
+        } catch (IOException e) {
+            // a StringBuilder does not throw an IOException
+            throw new IllegalStateException(e);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public void apply(Object input, Arguments args, Writer writer) throws IOException {
+        if (input != null) {
+            join(input, args, writer);
+        }
+    }
+
+    @Override
+    public Writer wrap(Writer writer, Arguments args) {
+        return null;
+    }
+
+    private void join(Object input, Arguments args, Appendable output) throws IOException {
+        Collection<?> inputCollection = (Collection<?>) input;
 
         String glue = null;
-        if (args.containsKey("separator")) {
-            glue = (String) args.get("separator");
+        if (args.isSet(0)) {
+            glue = (String) args.get(0);
         }
 
         boolean isFirst = true;
         for (Object entry : inputCollection) {
 
             if (!isFirst && glue != null) {
-                builder.append(glue);
+                output.append(glue);
             }
-            builder.append(entry);
+            output.append(String.valueOf(entry));
 
             isFirst = false;
         }
-        return builder.toString();
     }
 }
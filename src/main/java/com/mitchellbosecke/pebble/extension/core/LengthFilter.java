@@ -1,6 +1,7 @@
 package com.mitchellbosecke.pebble.extension.core;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
 import java.lang.reflect.Array;
 import java.util.Collection;
@@ -8,7 +9,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
-public class LengthFilter implements Filter {
+public class LengthFilter extends AbstractArgumentsFilter {
 
     @Override
     public List<String> getArgumentNames() {
@@ -16,7 +17,7 @@ public class LengthFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
         if (input == null) {
             return 0;
         }
@@ -11,9 +11,10 @@ package com.mitchellbosecke.pebble.extension.core;
 import java.util.List;
 import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Test;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsTest;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
-public class MapTest implements Test {
+public class MapTest extends AbstractArgumentsTest {
 
     @Override
     public List<String> getArgumentNames() {
@@ -21,7 +22,7 @@ public class MapTest implements Test {
     }
 
     @Override
-    public boolean apply(Object input, Map<String, Object> args) {
+    public boolean apply(Object input, Arguments args) {
         return input instanceof Map;
     }
 
@@ -14,9 +14,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
-public class MergeFilter implements Filter {
+public class MergeFilter extends AbstractArgumentsFilter {
 
     public static final String FILTER_NAME = "merge";
 
@@ -32,8 +33,8 @@ public class MergeFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
-        Object items = args.get("items");
+    public Object apply(Object input, Arguments args) {
+        Object items = args.get(0);
         if (input == null && items == null) {
             throw new IllegalArgumentException("The two arguments to be merged are null");
         } else if (input != null && items == null) {
@@ -9,12 +9,12 @@
 package com.mitchellbosecke.pebble.extension.core;
 
 import java.util.List;
-import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Function;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFunction;
+import com.mitchellbosecke.pebble.extension.Arguments;
 import com.mitchellbosecke.pebble.utils.OperatorUtils;
 
-public class MinFunction implements Function {
+public class MinFunction extends AbstractArgumentsFunction {
 
     @Override
     public List<String> getArgumentNames() {
@@ -22,15 +22,12 @@ public class MinFunction implements Function {
     }
 
     @Override
-    public Object execute(Map<String, Object> args) {
+    public Object execute(Arguments args) {
         Object min = null;
 
-        int i = 0;
+        for (int i = 0; i < args.size(); i++) {
 
-        while (args.containsKey(String.valueOf(i))) {
-
-            Object candidate = args.get(String.valueOf(i));
-            i++;
+            Object candidate = args.get(i);
 
             if (min == null) {
                 min = candidate;
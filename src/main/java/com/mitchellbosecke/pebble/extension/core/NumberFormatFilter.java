@@ -8,8 +8,8 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.extension.core;
 
-import com.mitchellbosecke.pebble.extension.Filter;
-import com.mitchellbosecke.pebble.template.EvaluationContext;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
@@ -18,9 +18,8 @@ import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 
-public class NumberFormatFilter implements Filter {
+public class NumberFormatFilter extends AbstractArgumentsFilter {
 
     private final List<String> argumentNames = new ArrayList<String>();
 
@@ -34,17 +33,16 @@ public class NumberFormatFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
         if (input == null) {
             return null;
         }
         Number number = (Number) input;
 
-        EvaluationContext context = (EvaluationContext) args.get("_context");
-        Locale locale = context.getLocale();
+        Locale locale = args.getContext().getLocale();
 
-        if (args.get("format") != null) {
-            Format format = new DecimalFormat((String) args.get("format"), new DecimalFormatSymbols(locale));
+        if (args.get(0) != null) {
+            Format format = new DecimalFormat((String) args.get(0), new DecimalFormatSymbols(locale));
             return format.format(number);
         } else {
             NumberFormat numberFormat = NumberFormat.getInstance(locale);
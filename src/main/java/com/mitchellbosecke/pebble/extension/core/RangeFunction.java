@@ -10,16 +10,16 @@ package com.mitchellbosecke.pebble.extension.core;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Function;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFunction;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
 /**
  * Range function to iterate over long or a string with a length of 1.
  *
  * @author Eric Bussieres
  */
-public class RangeFunction implements Function {
+public class RangeFunction extends AbstractArgumentsFunction {
     public static final String FUNCTION_NAME = "range";
     private static final String PARAM_END = "end";
     private static final String PARAM_INCREMENT = "increment";
@@ -33,10 +33,10 @@ public class RangeFunction implements Function {
     }
 
     @Override
-    public Object execute(Map<String, Object> args) {
-        Object start = args.get(PARAM_START);
-        Object end = args.get(PARAM_END);
-        Object increment = (Object) args.get(PARAM_INCREMENT);
+    public Object execute(Arguments args) {
+        Object start = args.get(0);
+        Object end = args.get(1);
+        Object increment = args.get(2);
         if (increment == null) {
             increment = 1L;
         }
@@ -1,5 +1,7 @@
 package com.mitchellbosecke.pebble.extension.core;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Collections;
@@ -7,7 +9,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
+import com.mitchellbosecke.pebble.extension.StreamingFilter;
 
 /**
  * This class implements the 'replace' filter.
@@ -15,7 +19,7 @@ import com.mitchellbosecke.pebble.extension.Filter;
  * @author Thomas Hunziker
  *
  */
-public class ReplaceFilter implements Filter {
+public class ReplaceFilter extends AbstractArgumentsFilter implements StreamingFilter {
 
     public static final String FILTER_NAME = "replace";
 
@@ -29,12 +33,12 @@ public class ReplaceFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
         String data = input.toString();
-        if (args.get(ARGUMENT_NAME) == null) {
+        if (args.get(0) == null) {
             throw new IllegalArgumentException(MessageFormat.format("The argument ''{0}'' is required.", ARGUMENT_NAME));
         }
-        Map<?, ?> replacePair = (Map<?, ?>) args.get(ARGUMENT_NAME);
+        Map<?, ?> replacePair = (Map<?, ?>) args.get(0);
 
         for (Entry<?, ?> entry : replacePair.entrySet()) {
            data = data.replace(entry.getKey().toString(), entry.getValue().toString());
@@ -43,4 +47,14 @@ public class ReplaceFilter implements Filter {
         return data;
     }
 
+    @Override
+    public void apply(Object input, Arguments args, Writer writer) throws IOException {
+        writer.write((String) apply(input, args));
+    }
+
+    @Override
+    public Writer wrap(Writer writer, Arguments args) {
+        return null;
+    }
+
 }
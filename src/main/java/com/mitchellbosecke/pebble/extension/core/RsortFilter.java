@@ -10,9 +10,9 @@ package com.mitchellbosecke.pebble.extension.core;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
 /**
  * Sort list items in the reverse order
@@ -20,7 +20,7 @@ import com.mitchellbosecke.pebble.extension.Filter;
  * @author Barakat Soror
  *
  */
-public class RsortFilter implements Filter {
+public class RsortFilter extends AbstractArgumentsFilter {
 
     @Override
     public List<String> getArgumentNames() {
@@ -29,7 +29,7 @@ public class RsortFilter implements Filter {
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
-    public List<Comparable> apply(Object input, Map<String, Object> args) {
+    public List<Comparable> apply(Object input, Arguments args) {
         if (input == null) {
             return null;
         }
@@ -8,15 +8,15 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.extension.core;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 
-public class SliceFilter implements Filter {
+public class SliceFilter extends AbstractArgumentsFilter {
 
     private final List<String> argumentNames = new ArrayList<String>();
 
@@ -31,14 +31,14 @@ public class SliceFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
 
         if (input == null) {
             return null;
         }
 
         // argument parsing
-        Object argFrom = args.get("fromIndex");
+        Object argFrom = args.get(0);
 
         if (argFrom == null) {
             // defaults to 0
@@ -52,7 +52,7 @@ public class SliceFilter implements Filter {
             throw new IllegalArgumentException("fromIndex must be greater than 0");
         }
 
-        Object argTo = args.get("toIndex");
+        Object argTo = args.get(1);
 
         if (argTo == null) {
             // defaults to input length
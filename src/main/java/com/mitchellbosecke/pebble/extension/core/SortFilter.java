@@ -10,11 +10,11 @@ package com.mitchellbosecke.pebble.extension.core;
 
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
 
-public class SortFilter implements Filter {
+public class SortFilter extends AbstractArgumentsFilter {
 
     @Override
     public List<String> getArgumentNames() {
@@ -23,7 +23,7 @@ public class SortFilter implements Filter {
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
-    public List<Comparable> apply(Object input, Map<String, Object> args) {
+    public List<Comparable> apply(Object input, Arguments args) {
         if (input == null) {
             return null;
         }
@@ -8,12 +8,15 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.extension.core;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
+import com.mitchellbosecke.pebble.extension.StreamingFilter;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
-import java.util.Map;
 
-public class TitleFilter implements Filter {
+public class TitleFilter extends AbstractArgumentsFilter implements StreamingFilter {
 
     @Override
     public List<String> getArgumentNames() {
@@ -21,7 +24,7 @@ public class TitleFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
         if (input == null) {
             return null;
         }
@@ -31,21 +34,37 @@ public class TitleFilter implements Filter {
             return value;
         }
 
-        StringBuilder result = new StringBuilder();
+        return new String(titleCase(value));
+    }
+
+    @Override
+    public void apply(Object input, Arguments args, Writer writer) throws IOException {
+        if (input != null) {
+            writer.write(titleCase((String) input));
+        }
+    }
+
+    @Override
+    public Writer wrap(Writer writer, Arguments args) {
+        return null;
+    }
+
+    private char[] titleCase(String value) {
+        char[] result = value.toCharArray();
 
         boolean capitalizeNextCharacter = true;
 
-        for (char c : value.toCharArray()) {
+        for (int i = 0; i < result.length; i++) {
+            char c = result[i];
             if (Character.isWhitespace(c)) {
                 capitalizeNextCharacter = true;
             } else if (capitalizeNextCharacter) {
-                c = Character.toTitleCase(c);
+                result[i] = Character.toTitleCase(c);
                 capitalizeNextCharacter = false;
             }
-            result.append(c);
         }
 
-        return result.toString();
+        return result;
     }
 
 }
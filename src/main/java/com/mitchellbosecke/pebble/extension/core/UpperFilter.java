@@ -8,12 +8,15 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.extension.core;
 
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
+import com.mitchellbosecke.pebble.extension.StreamingFilter;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
-import java.util.Map;
 
-public class UpperFilter implements Filter {
+public class UpperFilter extends AbstractArgumentsFilter implements StreamingFilter {
 
     @Override
     public List<String> getArgumentNames() {
@@ -21,11 +24,23 @@ public class UpperFilter implements Filter {
     }
 
     @Override
-    public Object apply(Object input, Map<String, Object> args) {
+    public Object apply(Object input, Arguments args) {
         if (input == null) {
             return null;
         }
         return ((String)input).toUpperCase();
     }
 
+    @Override
+    public void apply(Object input, Arguments args, Writer writer) throws IOException {
+        if (input != null) {
+            writer.write(((String) input).toUpperCase());
+        }
+    }
+
+    @Override
+    public Writer wrap(Writer writer, Arguments args) {
+        return null;
+    }
+
 }
@@ -9,15 +9,19 @@
 package com.mitchellbosecke.pebble.extension.escaper;
 
 import com.coverity.security.Escape;
-import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
+import com.mitchellbosecke.pebble.extension.StreamingFilter;
 import com.mitchellbosecke.pebble.utils.StringUtils;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class EscapeFilter implements Filter {
+public class EscapeFilter extends AbstractArgumentsFilter implements StreamingFilter {
 
     private String defaultStrategy = "html";
 
@@ -32,7 +36,7 @@ public class EscapeFilter implements Filter {
     }
 
     private void buildDefaultStrategies() {
-        strategies.put("html", new EscapingStrategy() {
+        strategies.put("html", new BuiltInStrategy() {
 
             @Override
             public String escape(String input) {
@@ -40,7 +44,7 @@ public class EscapeFilter implements Filter {
             }
         });
 
-        strategies.put("js", new EscapingStrategy() {
+        strategies.put("js", new BuiltInStrategy() {
 
             @Override
             public String escape(String input) {
@@ -48,7 +52,7 @@ public class EscapeFilter implements Filter {
             }
         });
 
-        strategies.put("css", new EscapingStrategy() {
+        strategies.put("css", new BuiltInStrategy() {
 
             @Override
             public String escape(String input) {
@@ -56,7 +60,7 @@ public class EscapeFilter implements Filter {
             }
         });
 
-        strategies.put("html_attr", new EscapingStrategy() {
+        strategies.put("html_attr", new BuiltInStrategy() {
 
             @Override
             public String escape(String input) {
@@ -64,7 +68,7 @@ public class EscapeFilter implements Filter {
             }
         });
 
-        strategies.put("url_param", new EscapingStrategy() {
+        strategies.put("url_param", new BuiltInStrategy() {
 
             @Override
             public String escape(String input) {
@@ -77,23 +81,51 @@ public class EscapeFilter implements Filter {
         return argumentNames;
     }
 
-    public Object apply(Object inputObject, Map<String, Object> args) {
+    @Override
+    public Object apply(Object inputObject, Arguments args) {
         if (inputObject == null || inputObject instanceof SafeString) {
             return inputObject;
         }
         String input = StringUtils.toString(inputObject);
 
+        return new SafeString(getStrategy(args).escape(input));
+    }
+
+    @Override
+    public void apply(Object inputObject, Arguments args, Writer writer) throws IOException {
+        Object result = apply(inputObject, args);
+        if (result != null) {
+            writer.write(result.toString());
+        }
+    }
+
+    /**
+     * Only the built-in strategies are applied to the text in chunks. A
+     * strategy added through {@link #addEscapingStrategy(String, EscapingStrategy)}
+     * may depend on seeing the text as a whole, so the text is escaped at once
+     * for it.
+     */
+    @Override
+    public Writer wrap(Writer writer, Arguments args) {
+        EscapingStrategy strategy = getStrategy(args);
+        if (!(strategy instanceof BuiltInStrategy)) {
+            return null;
+        }
+        return new EscapingWriter(writer, strategy);
+    }
+
+    private EscapingStrategy getStrategy(Arguments args) {
         String strategy = defaultStrategy;
 
-        if (args.get("strategy") != null) {
-            strategy = (String) args.get("strategy");
+        if (args.get(0) != null) {
+            strategy = (String) args.get(0);
         }
 
         if (!strategies.containsKey(strategy)) {
             throw new RuntimeException(String.format("Unknown escaping strategy [%s]", strategy));
         }
 
-        return new SafeString(strategies.get(strategy).escape(input));
+        return strategies.get(strategy);
     }
 
     public String getDefaultStrategy() {
@@ -107,4 +139,11 @@ public class EscapeFilter implements Filter {
     public void addEscapingStrategy(String name, EscapingStrategy strategy) {
         this.strategies.put(name, strategy);
     }
+
+    /**
+     * A built-in strategy escapes every character on its own, so escaping
+     * the text in chunks gives the same result as escaping it at once.
+     */
+    private abstract static class BuiltInStrategy implements EscapingStrategy {
+    }
 }
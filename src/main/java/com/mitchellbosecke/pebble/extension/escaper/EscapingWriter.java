@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.extension.escaper;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Escapes all the text written to it with an escaping strategy before it is
+ * passed on to another writer.
+ * <p>
+ * A high surrogate at the end of a write is held back until the next write so
+ * that a strategy never sees half of a supplementary character. Closing the
+ * writer writes any pending character but does not close the underlying
+ * writer.
+ *
+ * @author Mitchell
+ */
+class EscapingWriter extends Writer {
+
+    private final Writer writer;
+
+    private final EscapingStrategy strategy;
+
+    private String pendingHighSurrogate = null;
+
+    EscapingWriter(Writer writer, EscapingStrategy strategy) {
+        this.writer = writer;
+        this.strategy = strategy;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        escape(new String(cbuf, off, len));
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        escape(off == 0 && len == str.length() ? str : str.substring(off, off + len));
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        escape(String.valueOf((char) c));
+    }
+
+    private void escape(String text) throws IOException {
+        if (pendingHighSurrogate != null) {
+            text = pendingHighSurrogate + text;
+            pendingHighSurrogate = null;
+        }
+        if (!text.isEmpty() && Character.isHighSurrogate(text.charAt(text.length() - 1))) {
+            pendingHighSurrogate = text.substring(text.length() - 1);
+            text = text.substring(0, text.length() - 1);
+        }
+        if (!text.isEmpty()) {
+            writer.write(strategy.escape(text));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pendingHighSurrogate != null) {
+            writer.write(strategy.escape(pendingHighSurrogate));
+            pendingHighSurrogate = null;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.lexer;
+
+import com.mitchellbosecke.pebble.operator.BinaryOperator;
+import com.mitchellbosecke.pebble.operator.UnaryOperator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Writes the tokens of a template into a compact binary form and reads them
+ * back, i.e. to ship templates which don't have to be lexed again on startup.
+ * <p>
+ * The tokens depend on the syntax and on the operators which are known to the
+ * lexer. Both are part of a signature which is written with the tokens;
+ * tokens with another signature are not read so that the template is lexed
+ * from its source instead. The fingerprint of the source, see
+ * {@link com.mitchellbosecke.pebble.loader.ReloadableLoader}, is written as
+ * well, so that tokens are not read for a source which changed after they were
+ * written.
+ *
+ * @author Mitchell
+ */
+public class TokenStreamSerializer {
+
+    private static final int MAGIC = 0x50454243;
+
+    /**
+     * Has to be increased whenever the lexer produces different tokens for
+     * the same source.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+
+    private final String signature;
+
+    public TokenStreamSerializer(Syntax syntax, Collection<UnaryOperator> unaryOperators,
+            Collection<BinaryOperator> binaryOperators) {
+        Set<String> unarySymbols = new TreeSet<String>();
+        for (UnaryOperator operator : unaryOperators) {
+            unarySymbols.add(operator.getSymbol());
+        }
+        Set<String> binarySymbols = new TreeSet<String>();
+        for (BinaryOperator operator : binaryOperators) {
+            binarySymbols.add(operator.getSymbol());
+        }
+        this.signature = FORMAT_VERSION + "|" + syntax.getCommentOpenDelimiter() + " "
+                + syntax.getCommentCloseDelimiter() + " " + syntax.getExecuteOpenDelimiter() + " "
+                + syntax.getExecuteCloseDelimiter() + " " + syntax.getPrintOpenDelimiter() + " "
+                + syntax.getPrintCloseDelimiter() + " " + syntax.getWhitespaceTrim() + "|" + unarySymbols + "|"
+                + binarySymbols;
+    }
+
+    /**
+     * Writes the tokens of a template. The output stream is not closed.
+     *
+     * @param tokenStream The tokens
+     * @param fingerprint The fingerprint of the source the tokens were lexed
+     *                    from, may be null
+     * @param out         The output stream
+     * @throws IOException Thrown by the output stream
+     */
+    public void write(TokenStream tokenStream, Object fingerprint, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeUTF(signature);
+        data.writeUTF(String.valueOf(fingerprint));
+        List<Token> tokens = tokenStream.getTokens();
+        data.writeInt(tokens.size());
+        for (Token token : tokens) {
+            data.writeByte(token.getType().ordinal());
+            data.writeInt(token.getLineNumber());
+            if (token.getValue() == null) {
+                data.writeInt(-1);
+            } else {
+                byte[] value = token.getValue().getBytes(StandardCharsets.UTF_8);
+                data.writeInt(value.length);
+                data.write(value);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads the tokens of a template. The input stream is not closed.
+     *
+     * @param in           The input stream
+     * @param templateName The name of the template
+     * @param fingerprint  The fingerprint of the current source of the
+     *                     template or null if it is not known, in which case
+     *                     the tokens are read no matter which source they were
+     *                     lexed from
+     * @return The tokens or null if they were written with another signature
+     * or for another source
+     * @throws IOException Thrown by the input stream or if the input is not
+     *                     in the expected format
+     */
+    public TokenStream read(InputStream in, String templateName, Object fingerprint) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a precompiled template");
+        }
+        if (!signature.equals(data.readUTF())) {
+            return null;
+        }
+        String writtenFingerprint = data.readUTF();
+        if (fingerprint != null && !writtenFingerprint.equals(String.valueOf(fingerprint))) {
+            return null;
+        }
+        int size = data.readInt();
+        List<Token> tokens = new ArrayList<Token>(size);
+        for (int i = 0; i < size; i++) {
+            int type = data.readUnsignedByte();
+            if (type >= TYPES.length) {
+                throw new IOException("Unknown token type " + type);
+            }
+            int lineNumber = data.readInt();
+            int length = data.readInt();
+            String value = null;
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                data.readFully(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+            }
+            tokens.add(new Token(TYPES[type], value, lineNumber));
+        }
+        return new TokenStream(tokens, templateName);
+    }
+}
@@ -14,6 +14,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.TreeSet;
+import java.util.jar.JarFile;
 
 /**
  * Uses a classloader to find templates located on the classpath.
@@ -21,7 +29,8 @@ import java.io.*;
  * @author mbosecke
  *
  */
-public class ClasspathLoader implements Loader<String> {
+public class ClasspathLoader
+        implements ReloadableLoader<String>, ListableLoader<String>, PrecompiledLoader<String> {
 
     private static final Logger logger = LoggerFactory.getLogger(ClasspathLoader.class);
 
@@ -29,6 +38,8 @@ public class ClasspathLoader implements Loader<String> {
 
     private String suffix;
 
+    private String precompiledSuffix;
+
     private String charset = "UTF-8";
 
     private char expectedSeparator = '/';
@@ -51,22 +62,7 @@ public class ClasspathLoader implements Loader<String> {
 
         InputStream is = null;
 
-        // append the prefix and make sure prefix ends with a separator character
-        StringBuilder path = new StringBuilder(128);
-        if (getPrefix() != null) {
-
-            path.append(getPrefix());
-
-            // we do NOT use OS dependent separators here; getResourceAsStream
-            // explicitly requires forward slashes.
-            if (!getPrefix().endsWith(Character.toString(expectedSeparator))) {
-                path.append(expectedSeparator);
-            }
-        }
-        path.append(templateName);
-        if (getSuffix() != null)
-            path.append(getSuffix());
-        String location = path.toString();
+        String location = getLocation(templateName, getSuffix());
         logger.debug("Looking for template in {}.", location);
 
         // perform the lookup
@@ -85,6 +81,88 @@ public class ClasspathLoader implements Loader<String> {
         return reader;
     }
 
+    @Override
+    public Object getSourceFingerprint(String templateName) {
+        return Fingerprints.of(rcl.getResource(getLocation(templateName, getSuffix())));
+    }
+
+    /**
+     * Lists the templates below the prefix in all the directories and jar
+     * files on the classpath. A jar file is only found if it contains an entry
+     * for the directory of the prefix, and templates which are found by other
+     * means, e.g. by a custom class loader, are not listed.
+     */
+    @Override
+    public Collection<String> listTemplateNames() throws LoaderException {
+        String directory = getLocation("", null);
+        Collection<String> names = new TreeSet<String>();
+        try {
+            Enumeration<URL> urls = rcl.getResources(directory);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                logger.debug("Listing templates in {}.", url);
+                if ("file".equals(url.getProtocol())) {
+                    TemplateNames.addFiles(new File(url.toURI()), "", getSuffix(), names);
+                } else if ("jar".equals(url.getProtocol())) {
+                    URLConnection connection = url.openConnection();
+                    connection.setUseCaches(false);
+                    JarFile jarFile = ((JarURLConnection) connection).getJarFile();
+                    try {
+                        TemplateNames.addEntries(jarFile, directory, getSuffix(), names);
+                    } finally {
+                        jarFile.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new LoaderException(e, "Could not list the templates in \"" + directory + "\"");
+        } catch (URISyntaxException e) {
+            throw new LoaderException(e, "Could not list the templates in \"" + directory + "\"");
+        }
+        return names;
+    }
+
+    /**
+     * Looks for a precompiled template next to the template, with the
+     * precompiled suffix instead of the suffix. There are no precompiled
+     * templates unless the precompiled suffix is set. The source is only
+     * looked up if there is a precompiled template; its fingerprint is null if
+     * it is missing or within an archive.
+     */
+    @Override
+    public PrecompiledStream getPrecompiledStream(String templateName) {
+        if (precompiledSuffix == null) {
+            return null;
+        }
+        String location = getLocation(templateName, precompiledSuffix);
+        logger.debug("Looking for precompiled template in {}.", location);
+        InputStream in = rcl.getResourceAsStream(location);
+        if (in == null) {
+            return null;
+        }
+        URL source = rcl.getResource(getLocation(templateName, getSuffix()));
+        return new PrecompiledStream(in, source == null ? null : Fingerprints.of(source));
+    }
+
+    private String getLocation(String templateName, String suffix) {
+        // append the prefix and make sure prefix ends with a separator character
+        StringBuilder path = new StringBuilder(128);
+        if (getPrefix() != null) {
+
+            path.append(getPrefix());
+
+            // we do NOT use OS dependent separators here; getResourceAsStream
+            // explicitly requires forward slashes.
+            if (!getPrefix().endsWith(Character.toString(expectedSeparator))) {
+                path.append(expectedSeparator);
+            }
+        }
+        path.append(templateName);
+        if (suffix != null)
+            path.append(suffix);
+        return path.toString();
+    }
+
     public String getSuffix() {
         return suffix;
     }
@@ -94,6 +172,20 @@ public class ClasspathLoader implements Loader<String> {
         this.suffix = suffix;
     }
 
+    public String getPrecompiledSuffix() {
+        return precompiledSuffix;
+    }
+
+    /**
+     * Sets the suffix of the precompiled templates, e.g. ".pebc". The
+     * precompiled templates are not used if it is null, which is the default.
+     *
+     * @param precompiledSuffix The suffix of the precompiled templates
+     */
+    public void setPrecompiledSuffix(String precompiledSuffix) {
+        this.precompiledSuffix = precompiledSuffix;
+    }
+
     public String getPrefix() {
         return prefix;
     }
@@ -8,11 +8,18 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.loader;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.mitchellbosecke.pebble.error.LoaderException;
 
 /**
@@ -24,7 +31,13 @@ import com.mitchellbosecke.pebble.error.LoaderException;
  * @author mbosecke
  *
  */
-public class DelegatingLoader implements Loader<DelegatingLoaderCacheKey> {
+public class DelegatingLoader implements ReloadableLoader<DelegatingLoaderCacheKey>,
+        ListableLoader<DelegatingLoaderCacheKey>, PrecompiledLoader<DelegatingLoaderCacheKey> {
+
+    /**
+     * Marks a template which none of the children loaders found.
+     */
+    private static final int MISSING = -1;
 
     private String prefix;
 
@@ -32,7 +45,12 @@ public class DelegatingLoader implements Loader<DelegatingLoaderCacheKey> {
 
     private String charset = "UTF-8";
 
-
+    /**
+     * The index of the loader which found a template or {@link #MISSING}, by
+     * the cache key of the template. It is null if resolutions are not
+     * cached.
+     */
+    private volatile Cache<DelegatingLoaderCacheKey, Integer> resolutions;
 
     /**
      * Children loaders to delegate to. The loaders are used in order and as
@@ -52,24 +70,59 @@ public class DelegatingLoader implements Loader<DelegatingLoaderCacheKey> {
     }
 
 
+    /**
+     * Caches which of the children loaders finds a template, and which
+     * templates none of them finds, for the given time. A template is then
+     * read from the loader which found it before without asking the loaders
+     * in front of it again, and a missing template is reported right away.
+     * As a consequence, a template which is added in the meantime is only
+     * found once the time has passed. Resolutions are not cached by default.
+     *
+     * @param duration The time to cache a resolution for, zero to not cache
+     *                 resolutions at all
+     * @param unit     The unit of the duration
+     */
+    public void setResolutionCacheTtl(long duration, TimeUnit unit) {
+        if (duration <= 0) {
+            this.resolutions = null;
+        } else {
+            this.resolutions = CacheBuilder.newBuilder().expireAfterWrite(duration, unit).maximumSize(10000)
+                    .build();
+        }
+    }
+
     @Override
     public Reader getReader(DelegatingLoaderCacheKey cacheKey) throws LoaderException {
 
         Reader reader = null;
 
-        final int size = this.loaders.size();
-        for (int i = 0; i < size; i++) {
-            Loader<?> loader = this.loaders.get(i);
-            Object delegatingKey = cacheKey.getDelegatingCacheKeys().get(i);
-            try {
-                reader = this.getReaderInner(loader, delegatingKey);
+        Cache<DelegatingLoaderCacheKey, Integer> resolutions = this.resolutions;
+        if (resolutions != null) {
+            Integer resolved = resolutions.getIfPresent(cacheKey);
+            if (resolved != null) {
+                if (resolved == MISSING) {
+                    throw new LoaderException(null, "Could not find template \"" + cacheKey.getTemplateName() + "\"");
+                }
+                reader = this.getReaderOrNull(resolved, cacheKey);
                 if (reader != null) {
-                    break;
+                    return reader;
                 }
-            } catch (LoaderException e) {
-                // do nothing
+                // the template is gone, so all the loaders are asked again
+            }
+        }
+
+        int resolved = MISSING;
+        final int size = this.loaders.size();
+        for (int i = 0; i < size; i++) {
+            reader = this.getReaderOrNull(i, cacheKey);
+            if (reader != null) {
+                resolved = i;
+                break;
             }
         }
+        if (resolutions != null) {
+            resolutions.put(cacheKey, resolved);
+        }
         if (reader == null) {
             throw new LoaderException(null, "Could not find template \"" + cacheKey.getTemplateName() + "\"");
         }
@@ -77,6 +130,14 @@ public class DelegatingLoader implements Loader<DelegatingLoaderCacheKey> {
         return reader;
     }
 
+    private Reader getReaderOrNull(int index, DelegatingLoaderCacheKey cacheKey) {
+        try {
+            return this.getReaderInner(this.loaders.get(index), cacheKey.getDelegatingCacheKeys().get(index));
+        } catch (LoaderException e) {
+            return null;
+        }
+    }
+
     private <T> Reader getReaderInner(Loader<T> delegatingLoader, Object cacheKey)
             throws LoaderException {
 
@@ -88,6 +149,123 @@ public class DelegatingLoader implements Loader<DelegatingLoaderCacheKey> {
         return delegatingLoader.getReader(castedKey);
     }
 
+    /**
+     * Returns the fingerprints of all the children loaders because which of
+     * them finds the template may change as well.
+     */
+    @Override
+    public Object getSourceFingerprint(DelegatingLoaderCacheKey cacheKey) {
+        List<Object> fingerprints = new ArrayList<Object>();
+        boolean reloadable = false;
+        final int size = this.loaders.size();
+        for (int i = 0; i < size; i++) {
+            Loader<?> loader = this.loaders.get(i);
+            if (loader instanceof ReloadableLoader) {
+                fingerprints.add(this.getSourceFingerprintInner((ReloadableLoader<?>) loader,
+                        cacheKey.getDelegatingCacheKeys().get(i)));
+                reloadable = true;
+            } else {
+                fingerprints.add(null);
+            }
+        }
+        return reloadable ? fingerprints : null;
+    }
+
+    /**
+     * Returns the templates listed by all the children loaders which are able
+     * to list them; the other children are skipped.
+     */
+    @Override
+    public Collection<String> listTemplateNames() throws LoaderException {
+        Collection<String> names = new TreeSet<String>();
+        for (Loader<?> loader : this.loaders) {
+            if (loader instanceof ListableLoader) {
+                names.addAll(((ListableLoader<?>) loader).listTemplateNames());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the first precompiled template found by the children loaders,
+     * unless a loader in front of the one which found it finds the source of
+     * the template; a precompiled template must not shadow a template which is
+     * found before it. Only the loaders in front are asked for the source, and
+     * only if there is a precompiled template at all. A cached resolution is
+     * used instead, and a resolution found here is cached as well.
+     */
+    @Override
+    public PrecompiledStream getPrecompiledStream(DelegatingLoaderCacheKey cacheKey) throws LoaderException {
+        Cache<DelegatingLoaderCacheKey, Integer> resolutions = this.resolutions;
+        Integer resolved = resolutions == null ? null : resolutions.getIfPresent(cacheKey);
+        if (resolved != null && resolved != MISSING) {
+            return this.getPrecompiledStreamOrNull(resolved, cacheKey);
+        }
+
+        final int size = this.loaders.size();
+        for (int i = 0; i < size; i++) {
+            PrecompiledStream precompiled = this.getPrecompiledStreamOrNull(i, cacheKey);
+            if (precompiled == null) {
+                continue;
+            }
+            if (resolved == null) {
+                for (int j = 0; j < i; j++) {
+                    Reader reader = this.getReaderOrNull(j, cacheKey);
+                    if (reader != null) {
+                        // loader j finds the source but has no precompiled template
+                        closeQuietly(reader);
+                        closeQuietly(precompiled.getInputStream());
+                        if (resolutions != null) {
+                            resolutions.put(cacheKey, j);
+                        }
+                        return null;
+                    }
+                }
+            }
+            return precompiled;
+        }
+        return null;
+    }
+
+    private PrecompiledStream getPrecompiledStreamOrNull(int index, DelegatingLoaderCacheKey cacheKey)
+            throws LoaderException {
+        Loader<?> loader = this.loaders.get(index);
+        if (!(loader instanceof PrecompiledLoader)) {
+            return null;
+        }
+        return this.getPrecompiledStreamInner((PrecompiledLoader<?>) loader,
+                cacheKey.getDelegatingCacheKeys().get(index));
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing was read from it
+        }
+    }
+
+    private <T> PrecompiledStream getPrecompiledStreamInner(PrecompiledLoader<T> delegatingLoader, Object cacheKey)
+            throws LoaderException {
+
+        // This unchecked cast is ok, because we ensure that the type of the
+        // cache key corresponds to the loader when we create the key.
+        @SuppressWarnings("unchecked")
+        T castedKey = (T) cacheKey;
+
+        return delegatingLoader.getPrecompiledStream(castedKey);
+    }
+
+    private <T> Object getSourceFingerprintInner(ReloadableLoader<T> delegatingLoader, Object cacheKey) {
+
+        // This unchecked cast is ok, because we ensure that the type of the
+        // cache key corresponds to the loader when we create the key.
+        @SuppressWarnings("unchecked")
+        T castedKey = (T) cacheKey;
+
+        return delegatingLoader.getSourceFingerprint(castedKey);
+    }
+
     public String getSuffix() {
         return suffix;
     }
@@ -95,6 +273,7 @@ public class DelegatingLoader implements Loader<DelegatingLoaderCacheKey> {
     @Override
     public void setSuffix(String suffix) {
         this.suffix = suffix;
+        this.invalidateResolutions();
         for (Loader<?> loader : loaders) {
             loader.setSuffix(suffix);
         }
@@ -107,11 +286,19 @@ public class DelegatingLoader implements Loader<DelegatingLoaderCacheKey> {
     @Override
     public void setPrefix(String prefix) {
         this.prefix = prefix;
+        this.invalidateResolutions();
         for (Loader<?> loader : loaders) {
             loader.setPrefix(prefix);
         }
     }
 
+    private void invalidateResolutions() {
+        Cache<DelegatingLoaderCacheKey, Integer> resolutions = this.resolutions;
+        if (resolutions != null) {
+            resolutions.invalidateAll();
+        }
+    }
+
     public String getCharset() {
         return charset;
     }
@@ -14,6 +14,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.Collection;
+import java.util.TreeSet;
 
 /**
  * This loader searches for a file located anywhere on the filesystem. It uses
@@ -22,7 +24,7 @@ import java.io.*;
  * @author mbosecke
  *
  */
-public class FileLoader implements Loader<String> {
+public class FileLoader implements ReloadableLoader<String>, ListableLoader<String> {
 
     private static final Logger logger = LoggerFactory.getLogger(FileLoader.class);
 
@@ -42,6 +44,55 @@ public class FileLoader implements Loader<String> {
 
         InputStream is = null;
 
+        File file = getFile(templateName);
+
+        logger.debug("Looking for template in {}.", file.getPath());
+
+        // try to load File
+        if (file.exists() && file.isFile()) {
+            try {
+                is = new FileInputStream(file);
+            } catch (FileNotFoundException e) {
+            }
+        }
+
+        if (is == null) {
+            throw new LoaderException(null, "Could not find template \"" + file.getPath() + "\"");
+        }
+
+        try {
+            isr = new InputStreamReader(is, charset);
+            reader = new BufferedReader(isr);
+        } catch (UnsupportedEncodingException e) {
+        }
+
+        return reader;
+    }
+
+    @Override
+    public Object getSourceFingerprint(String templateName) {
+        return Fingerprints.of(getFile(templateName));
+    }
+
+    /**
+     * Lists the files below the prefix, which therefore has to be set.
+     */
+    @Override
+    public Collection<String> listTemplateNames() throws LoaderException {
+        if (getPrefix() == null) {
+            throw new LoaderException(null, "A prefix is required to list the templates of a file loader.");
+        }
+        File directory = new File(getPrefix());
+        if (!directory.isDirectory()) {
+            throw new LoaderException(null, "Could not find template directory \"" + directory.getPath() + "\"");
+        }
+        Collection<String> names = new TreeSet<String>();
+        TemplateNames.addFiles(directory, "", getSuffix(), names);
+        return names;
+    }
+
+    private File getFile(String templateName) {
+
         // add the prefix and ensure the prefix ends with a separator character
         StringBuilder path = new StringBuilder("");
         if (getPrefix() != null) {
@@ -55,8 +106,6 @@ public class FileLoader implements Loader<String> {
 
         templateName = templateName + (getSuffix() == null ? "" : getSuffix());
 
-        logger.debug("Looking for template in {}{}.", path.toString(), templateName);
-
         /*
          * if template name contains path segments, move those segments into the
          * path variable. The below technique needs to know the difference
@@ -72,28 +121,7 @@ public class FileLoader implements Loader<String> {
             path.append(pathSegments[i]).append(File.separatorChar);
         }
 
-        // try to load File
-        if (is == null) {
-            File file = new File(path.toString(), templateName);
-            if (file.exists() && file.isFile()) {
-                try {
-                    is = new FileInputStream(file);
-                } catch (FileNotFoundException e) {
-                }
-            }
-        }
-
-        if (is == null) {
-            throw new LoaderException(null, "Could not find template \"" + path.toString() + templateName + "\"");
-        }
-
-        try {
-            isr = new InputStreamReader(is, charset);
-            reader = new BufferedReader(isr);
-        } catch (UnsupportedEncodingException e) {
-        }
-
-        return reader;
+        return new File(path.toString(), templateName);
     }
 
     public String getSuffix() {
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.loader;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Arrays;
+
+/**
+ * Creates the source fingerprints of the loaders in this package.
+ *
+ * @author Mitchell
+ */
+class Fingerprints {
+
+    private Fingerprints() {
+    }
+
+    /**
+     * Returns the modification time and the size of a file. Both are zero if
+     * the file does not exist.
+     *
+     * @param file The file
+     * @return The fingerprint
+     */
+    static Object of(File file) {
+        return Arrays.asList(file.lastModified(), file.length());
+    }
+
+    /**
+     * Returns the fingerprint of a resource if it is a file, otherwise null
+     * because resources within archives are not expected to change.
+     *
+     * @param url The URL of the resource or null if it does not exist
+     * @return The fingerprint
+     */
+    static Object of(URL url) {
+        if (url == null) {
+            return Arrays.asList(0L, 0L);
+        }
+        if (!"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return of(new File(url.toURI()));
+        } catch (URISyntaxException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.loader;
+
+import com.mitchellbosecke.pebble.error.LoaderException;
+
+import java.util.Collection;
+
+/**
+ * A loader which is able to list all the templates it can find, i.e. to
+ * compile them up front with
+ * {@link com.mitchellbosecke.pebble.PebbleEngine#precompile(java.util.concurrent.ExecutorService)}.
+ *
+ * @author Mitchell
+ */
+public interface ListableLoader<T> extends Loader<T> {
+
+    /**
+     * Returns the names of all the templates below the prefix which end with
+     * the suffix. The names are relative to the prefix and don't include the
+     * suffix, i.e. they can be passed to
+     * {@link com.mitchellbosecke.pebble.PebbleEngine#getTemplate(String)}.
+     *
+     * @return The names of the templates
+     * @throws LoaderException If the templates can not be listed
+     */
+    Collection<String> listTemplateNames() throws LoaderException;
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.loader;
+
+import com.mitchellbosecke.pebble.error.LoaderException;
+
+/**
+ * A loader which is able to find precompiled templates, which were written
+ * with {@link com.mitchellbosecke.pebble.PebbleEngine#writePrecompiledTemplate}.
+ * The engine uses a precompiled template instead of lexing its source, unless
+ * it was written by an engine with another syntax or other operators, or for
+ * a source with another fingerprint. A precompiled template is used as is if
+ * the loader does not find its source or can't tell its fingerprint.
+ *
+ * @author Mitchell
+ */
+public interface PrecompiledLoader<T> extends Loader<T> {
+
+    /**
+     * Opens the precompiled form of a template. The source of the template is
+     * not read.
+     *
+     * @param cacheKey The cache key of the template
+     * @return The precompiled form, whose input stream is closed by the
+     * caller, or null if there is no precompiled form of the template
+     * @throws LoaderException If the precompiled template can not be opened
+     */
+    PrecompiledStream getPrecompiledStream(T cacheKey) throws LoaderException;
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.loader;
+
+import java.io.InputStream;
+
+/**
+ * The precompiled form of a template together with the fingerprint of the
+ * source it has to be written for, as found by a {@link PrecompiledLoader}.
+ *
+ * @author Mitchell
+ */
+public class PrecompiledStream {
+
+    private final InputStream inputStream;
+
+    private final Object sourceFingerprint;
+
+    /**
+     * Constructor
+     *
+     * @param inputStream       The precompiled form of the template
+     * @param sourceFingerprint The fingerprint of the current source of the
+     *                          template, see {@link ReloadableLoader}, or null
+     *                          if the loader does not find the source or can't
+     *                          tell its fingerprint
+     */
+    public PrecompiledStream(InputStream inputStream, Object sourceFingerprint) {
+        this.inputStream = inputStream;
+        this.sourceFingerprint = sourceFingerprint;
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    public Object getSourceFingerprint() {
+        return sourceFingerprint;
+    }
+}
@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.loader;
+
+/**
+ * A loader which can tell whether the source of a template has changed since
+ * it was loaded, so that an engine which reloads changed templates only has
+ * to compile those again.
+ *
+ * @author Mitchell
+ */
+public interface ReloadableLoader<T> extends Loader<T> {
+
+    /**
+     * Returns a value which changes whenever the source of the template
+     * changes, i.e. its modification time and size. It is compared with
+     * {@link Object#equals(Object)} to the value returned when the template was
+     * loaded.
+     * <p>
+     * This method is called every time a template is retrieved from the
+     * engine and therefore has to be fast; it must not read the source.
+     *
+     * @param cacheKey The cache key of the template, see
+     *                 {@link #createCacheKey(String)}
+     * @return The fingerprint or null if the source is not expected to change
+     */
+    Object getSourceFingerprint(T cacheKey);
+}
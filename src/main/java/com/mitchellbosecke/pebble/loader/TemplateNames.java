@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.loader;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Lists the names of templates for the loaders in this package.
+ *
+ * @author Mitchell
+ */
+class TemplateNames {
+
+    private TemplateNames() {
+    }
+
+    /**
+     * Adds the names of the files within a directory and its subdirectories.
+     *
+     * @param directory The directory
+     * @param path      The name of the directory relative to the prefix,
+     *                  ending with a slash, or an empty string
+     * @param suffix    The suffix of the templates, may be null
+     * @param names     The names to add to
+     */
+    static void addFiles(File directory, String path, String suffix, Collection<String> names) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addFiles(file, path + file.getName() + '/', suffix, names);
+            } else {
+                add(path + file.getName(), suffix, names);
+            }
+        }
+    }
+
+    /**
+     * Adds the names of the entries of an archive below a directory.
+     *
+     * @param jarFile   The archive
+     * @param directory The directory within the archive, ending with a slash,
+     *                  or an empty string
+     * @param suffix    The suffix of the templates, may be null
+     * @param names     The names to add to
+     */
+    static void addEntries(JarFile jarFile, String directory, String suffix, Collection<String> names) {
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (!entry.isDirectory() && entry.getName().startsWith(directory)) {
+                add(entry.getName().substring(directory.length()), suffix, names);
+            }
+        }
+    }
+
+    private static void add(String name, String suffix, Collection<String> names) {
+        if (suffix == null) {
+            names.add(name);
+        } else if (name.endsWith(suffix)) {
+            names.add(name.substring(0, name.length() - suffix.length()));
+        }
+    }
+}
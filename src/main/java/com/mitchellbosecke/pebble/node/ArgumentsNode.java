@@ -8,13 +8,14 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.node;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.extension.Arguments;
 import com.mitchellbosecke.pebble.extension.NamedArguments;
 import com.mitchellbosecke.pebble.extension.NodeVisitor;
+import com.mitchellbosecke.pebble.node.expression.Expression;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
 
@@ -26,6 +27,12 @@ public class ArgumentsNode implements Node {
 
     private final int lineNumber;
 
+    /**
+     * The binding for the last filter/function/test/macro which was invoked
+     * with these arguments. There usually is only one.
+     */
+    private volatile Binding binding;
+
     public ArgumentsNode(List<PositionalArgumentNode> positionalArgs, List<NamedArgumentNode> namedArgs, int lineNumber) {
         this.positionalArgs = positionalArgs;
         this.namedArgs = namedArgs;
@@ -45,6 +52,22 @@ public class ArgumentsNode implements Node {
         return positionalArgs;
     }
 
+    /**
+     * Binds the arguments to the parameters of the filter, test, function or
+     * macro that is invoked so that invalid arguments are reported before the
+     * template is evaluated.
+     *
+     * @param invocable
+     *            The invoked filter, test, function or macro
+     * @param templateName
+     *            The name of the template, used for error reporting
+     * @throws PebbleException
+     *             Thrown if an argument does not exist
+     */
+    public void bind(NamedArguments invocable, String templateName) throws PebbleException {
+        getBinding(invocable, templateName);
+    }
+
     /**
      * Using hints from the filter/function/test/macro it will convert an
      * ArgumentMap (which holds both positional and named arguments) into a
@@ -62,52 +85,102 @@ public class ArgumentsNode implements Node {
      */
     public Map<String, Object> getArgumentMap(PebbleTemplateImpl self, EvaluationContext context,
             NamedArguments invocableWithNamedArguments) throws PebbleException {
-        Map<String, Object> result = new HashMap<String, Object>();
-        List<String> argumentNames = invocableWithNamedArguments.getArgumentNames();
+        return getArguments(self, context, invocableWithNamedArguments).toMap();
+    }
 
-        if (argumentNames == null) {
+    /**
+     * Evaluates the arguments and stores them at the index of the parameter of
+     * the filter/function/test/macro that they belong to.
+     *
+     * @param self
+     *            The template implementation
+     * @param context
+     *            The evaluation context
+     * @param invocable
+     *            The invoked filter, test, function or macro
+     * @return The arguments
+     * @throws PebbleException
+     *             Thrown if an argument does not exist
+     */
+    public Arguments getArguments(PebbleTemplateImpl self, EvaluationContext context, NamedArguments invocable)
+            throws PebbleException {
+        Binding binding = getBinding(invocable, self.getName());
+        Arguments result = new Arguments(self, context, binding.argumentNames, binding.size);
+
+        if (positionalArgs != null) {
+            for (int i = 0; i < positionalArgs.size(); i++) {
+                result.set(i, positionalArgs.get(i).getValueExpression().evaluate(self, context));
+            }
+        }
 
-            /* Some functions such as min and max use un-named varags */
-            if (positionalArgs != null && !positionalArgs.isEmpty()) {
-                for (int i = 0; i < positionalArgs.size(); i++) {
-                    result.put(String.valueOf(i), positionalArgs.get(i).getValueExpression().evaluate(self, context));
-                }
+        if (binding.namedSlots != null) {
+            for (int i = 0; i < binding.namedSlots.length; i++) {
+                Expression<?> valueExpression = namedArgs.get(i).getValueExpression();
+                Object value = valueExpression == null ? null : valueExpression.evaluate(self, context);
+                result.set(binding.namedSlots[i], value);
             }
-        } else {
+        }
 
-            if (positionalArgs != null) {
-                int nameIndex = 0;
+        return result;
+    }
 
-                for (PositionalArgumentNode arg : positionalArgs) {
-                    if (argumentNames.size() <= nameIndex) {
-                        throw new PebbleException(null, "The argument at position " + (nameIndex + 1)
-                                + " is not allowed. Only " + argumentNames.size() + " argument(s) are allowed.",
-                                this.lineNumber, self.getName());
-                    }
+    private Binding getBinding(NamedArguments invocable, String templateName) throws PebbleException {
+        Binding binding = this.binding;
+        if (binding == null || binding.invocable != invocable) {
+            binding = new Binding(invocable, templateName);
+            this.binding = binding;
+        }
+        return binding;
+    }
+
+    /**
+     * The index of every argument within the parameters of the invoked
+     * filter/function/test/macro.
+     */
+    private final class Binding {
 
-                    result.put(argumentNames.get(nameIndex), arg.getValueExpression().evaluate(self, context));
-                    nameIndex++;
+        private final NamedArguments invocable;
+
+        private final List<String> argumentNames;
+
+        private final int size;
+
+        /**
+         * The index of each named argument, null if named arguments are
+         * ignored.
+         */
+        private final int[] namedSlots;
+
+        private Binding(NamedArguments invocable, String templateName) throws PebbleException {
+            this.invocable = invocable;
+            this.argumentNames = invocable.getArgumentNames();
+            int positionalCount = positionalArgs == null ? 0 : positionalArgs.size();
+
+            if (argumentNames == null) {
+
+                /* Some functions such as min and max use un-named varags */
+                this.size = positionalCount;
+                this.namedSlots = null;
+            } else {
+                if (positionalCount > argumentNames.size()) {
+                    throw new PebbleException(null, "The argument at position " + (argumentNames.size() + 1)
+                            + " is not allowed. Only " + argumentNames.size() + " argument(s) are allowed.",
+                            lineNumber, templateName);
                 }
-            }
 
-            if (namedArgs != null) {
-                for (NamedArgumentNode arg : namedArgs) {
+                this.size = argumentNames.size();
+                this.namedSlots = new int[namedArgs == null ? 0 : namedArgs.size()];
+                for (int i = 0; i < namedSlots.length; i++) {
                     // check if user used an incorrect name
-                    if (!argumentNames.contains(arg.getName())) {
-                        throw new PebbleException(null, "The following named argument does not exist: " + arg.getName(),
-                                this.lineNumber, self.getName());
+                    String name = namedArgs.get(i).getName();
+                    namedSlots[i] = argumentNames.indexOf(name);
+                    if (namedSlots[i] < 0) {
+                        throw new PebbleException(null, "The following named argument does not exist: " + name,
+                                lineNumber, templateName);
                     }
-                    Object value = arg.getValueExpression() == null ? null : arg.getValueExpression().evaluate(self,
-                            context);
-                    result.put(arg.getName(), value);
                 }
             }
         }
-
-        result.put("_self", self);
-        result.put("_context", context);
-
-        return result;
     }
 
 }
@@ -15,9 +15,11 @@ import com.mitchellbosecke.pebble.node.expression.Expression;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
 import com.mitchellbosecke.pebble.tokenParser.CacheTokenParser;
+import com.mitchellbosecke.pebble.utils.BufferPool;
+import com.mitchellbosecke.pebble.utils.OutputLengthEstimator;
+import com.mitchellbosecke.pebble.utils.StringBuilderWriter;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Locale;
 import java.util.concurrent.Callable;
@@ -108,6 +110,12 @@ public class CacheNode extends AbstractRenderableNode {
 
     private final Expression<?> name;
 
+    /**
+     * Estimates the length of the output, used to size the buffer it is
+     * rendered into.
+     */
+    private final OutputLengthEstimator outputLength = new OutputLengthEstimator();
+
     public CacheNode(int lineNumber, Expression<?> name, BodyNode body) {
         super(lineNumber);
         this.body = body;
@@ -128,10 +136,15 @@ public class CacheNode extends AbstractRenderableNode {
 
                 @Override
                 public String call() throws Exception {
-                    StringWriter tempWriter = new StringWriter();
-                    CacheNode.this.body.render(self, tempWriter, context);
-
-                    return tempWriter.toString();
+                    BufferPool bufferPool = context.getBufferPool();
+                    StringBuilderWriter tempWriter = bufferPool.acquireWriter(outputLength.estimate());
+                    try {
+                        CacheNode.this.body.render(self, tempWriter, context);
+                        outputLength.record(tempWriter.length());
+                        return tempWriter.toString();
+                    } finally {
+                        bufferPool.releaseWriter(tempWriter);
+                    }
                 }
             });
             writer.write(body);
@@ -14,11 +14,19 @@ import com.mitchellbosecke.pebble.node.expression.Expression;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
 import com.mitchellbosecke.pebble.template.ScopeChain;
+import com.mitchellbosecke.pebble.template.SymbolTable;
+import com.mitchellbosecke.pebble.utils.BufferPool;
+import com.mitchellbosecke.pebble.utils.FutureWriter;
+import com.mitchellbosecke.pebble.utils.OutputLengthEstimator;
+import com.mitchellbosecke.pebble.utils.StringBuilderWriter;
 
 import java.io.IOException;
 import java.io.Writer;
 import java.lang.reflect.Array;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Represents a "for" loop within the template.
@@ -27,21 +35,56 @@ import java.util.*;
  */
 public class ForNode extends AbstractRenderableNode {
 
+    /**
+     * A parallel loop is split into this many chunks per thread so that a
+     * chunk with slow elements doesn't hold up the rest.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
     private final String variableName;
 
-    private final Expression<?> iterableExpression;
+    private final int variableSymbol;
+
+    private Expression<?> iterableExpression;
 
     private final BodyNode body;
 
     private final BodyNode elseBody;
 
+    private final boolean parallel;
+
+    /**
+     * Estimates the length of the output of a chunk of a parallel loop.
+     */
+    private final OutputLengthEstimator chunkLength = new OutputLengthEstimator();
+
     public ForNode(int lineNumber, String variableName, Expression<?> iterableExpression, BodyNode body,
             BodyNode elseBody) {
+        this(lineNumber, variableName, iterableExpression, body, elseBody, false, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param lineNumber         The line number
+     * @param variableName       The name of the loop variable
+     * @param iterableExpression The expression to iterate over
+     * @param body               The body of the loop
+     * @param elseBody           The body used for an empty iterable, may be
+     *                           null
+     * @param parallel           Whether the body is rendered in parallel
+     * @param symbolTable        The symbol table to resolve the name of the
+     *                           loop variable with, may be null
+     */
+    public ForNode(int lineNumber, String variableName, Expression<?> iterableExpression, BodyNode body,
+            BodyNode elseBody, boolean parallel, SymbolTable symbolTable) {
         super(lineNumber);
         this.variableName = variableName;
+        this.variableSymbol = symbolTable == null ? SymbolTable.UNKNOWN_SYMBOL : symbolTable.getSymbol(variableName);
         this.iterableExpression = iterableExpression;
         this.body = body;
         this.elseBody = elseBody;
+        this.parallel = parallel;
     }
 
     @Override
@@ -61,6 +104,11 @@ public class ForNode extends AbstractRenderableNode {
                 getLineNumber(), self.getName());
         }
 
+        if (parallel && context.getExecutorService() != null && writer instanceof FutureWriter) {
+            renderInParallel(self, (FutureWriter) writer, context, iterable);
+            return;
+        }
+
         Iterator<?> iterator = iterable.iterator();
 
         boolean newScope = false;
@@ -75,51 +123,25 @@ public class ForNode extends AbstractRenderableNode {
              * variable do we push another scope, otherwise we reuse the current
              * scope for performance purposes.
              */
-            if (scopeChain.currentScopeContainsVariable("loop") || scopeChain
-                    .currentScopeContainsVariable(variableName)) {
+            if (scopeChain.currentScopeContainsVariable(SymbolTable.LOOP_SYMBOL, "loop") || scopeChain
+                    .currentScopeContainsVariable(variableSymbol, variableName)) {
                 scopeChain.pushScope();
                 newScope = true;
             }
 
-            int length = getIteratorSize(iterableEvaluation);
-            int index = 0;
-
-            Map<String, Object> loop = null;
-
-            boolean usingExecutorService = context.getExecutorService() != null;
-
-            while (iterator.hasNext()) {
-
-                /*
-                 * If the user is using an executor service (i.e. parallel node), we
-                 * must create a new map with every iteration instead of
-                 * re-using the same one; it's imperative that each thread would
-                 * get it's own distinct copy of the context.
-                 */
-                if (index == 0 || usingExecutorService) {
-                    loop = new HashMap<String, Object>();
-                    loop.put("first", index == 0);
-                    loop.put("last", index == length - 1);
-                    loop.put("length", length);
-                }else{
-
-                    // second iteration
-                    if(index == 1){
-                        loop.put("first", false);
-                    }
-
-                    // last iteration
-                    if(index == length - 1){
-                        loop.put("last", true);
-                    }
-                }
+            /*
+             * The same loop object is updated for every iteration. If a
+             * "parallel" tag copies the scopes, the copy receives a snapshot of
+             * it instead (see Scope#shallowCopy).
+             */
+            LoopContext loop = new LoopContext(iterator, getIteratorSize(iterableEvaluation));
 
-                loop.put("revindex", length - index - 1);
-                loop.put("index", index++);
+            while (loop.hasNext()) {
 
-                scopeChain.put("loop", loop);
+                Object item = loop.next();
+                scopeChain.put(SymbolTable.LOOP_SYMBOL, "loop", loop);
 
-                scopeChain.put(variableName, iterator.next());
+                scopeChain.put(variableSymbol, variableName, item);
                 body.render(self, writer, context);
             }
 
@@ -133,6 +155,69 @@ public class ForNode extends AbstractRenderableNode {
 
     }
 
+    /**
+     * Splits the elements into chunks which are rendered by the executor
+     * service, each with its own copy of the scopes and into its own buffer.
+     * The outputs of the chunks are written in order. Like within a
+     * "parallel" tag, variables set by the body are not visible after the
+     * loop.
+     */
+    private void renderInParallel(final PebbleTemplateImpl self, FutureWriter writer, EvaluationContext context,
+            Iterable<?> iterable) throws PebbleException, IOException {
+        final List<Object> items = new ArrayList<Object>();
+        for (Object item : iterable) {
+            items.add(item);
+        }
+
+        if (items.isEmpty()) {
+            if (elseBody != null) {
+                elseBody.render(self, writer, context);
+            }
+            return;
+        }
+
+        ExecutorService es = context.getExecutorService();
+        int threads = es instanceof ForkJoinPool ? ((ForkJoinPool) es).getParallelism()
+                : Runtime.getRuntime().availableProcessors();
+        int chunks = Math.min(items.size(), CHUNKS_PER_THREAD * threads);
+        int chunkSize = (items.size() + chunks - 1) / chunks;
+
+        for (int start = 0; start < items.size(); start += chunkSize) {
+            final int offset = start;
+            final List<Object> chunk = items.subList(start, Math.min(start + chunkSize, items.size()));
+            final EvaluationContext contextCopy = context.threadSafeCopy(self);
+
+            writer.enqueue(ParallelNode.submit(es, new Callable<String>() {
+
+                @Override
+                public String call() throws PebbleException, IOException {
+                    BufferPool bufferPool = contextCopy.getBufferPool();
+                    StringBuilderWriter chunkWriter = bufferPool.acquireWriter(chunkLength.estimate());
+                    try {
+                        Writer futureWriter = new FutureWriter(chunkWriter);
+                        ScopeChain scopeChain = contextCopy.getScopeChain();
+                        scopeChain.pushScope();
+
+                        LoopContext loop = new LoopContext(chunk.iterator(), items.size(), offset);
+                        while (loop.hasNext()) {
+                            Object item = loop.next();
+                            scopeChain.put(SymbolTable.LOOP_SYMBOL, "loop", loop);
+
+                            scopeChain.put(variableSymbol, variableName, item);
+                            body.render(self, futureWriter, contextCopy);
+                        }
+                        futureWriter.flush();
+
+                        chunkLength.record(chunkWriter.length());
+                        return chunkWriter.toString();
+                    } finally {
+                        bufferPool.releaseWriter(chunkWriter);
+                    }
+                }
+            }));
+        }
+    }
+
     @Override
     public void accept(NodeVisitor visitor) {
         visitor.visit(this);
@@ -146,6 +231,10 @@ public class ForNode extends AbstractRenderableNode {
         return iterableExpression;
     }
 
+    public void setIterable(Expression<?> iterableExpression) {
+        this.iterableExpression = iterableExpression;
+    }
+
     public BodyNode getBody() {
         return body;
     }
@@ -154,6 +243,10 @@ public class ForNode extends AbstractRenderableNode {
         return elseBody;
     }
 
+    public boolean isParallel() {
+        return parallel;
+    }
+
     @SuppressWarnings({ "unchecked", "rawtypes" })
     private Iterable<Object> toIterable(final Object obj) {
 
@@ -206,6 +299,11 @@ public class ForNode extends AbstractRenderableNode {
         return result;
     }
 
+    /**
+     * Returns the size of the iterable if it is known without iterating it,
+     * otherwise -1. Any other iterable is only iterated once, see
+     * {@link LoopContext}.
+     */
     private int getIteratorSize(Object iterable) {
         if (iterable == null) {
             return 0;
@@ -217,14 +315,6 @@ public class ForNode extends AbstractRenderableNode {
         } else if (iterable.getClass().isArray()) {
             return Array.getLength(iterable);
         }
-
-        // assumed to be of type Iterator
-        Iterator<?> it = ((Iterable<?>) iterable).iterator();
-        int size = 0;
-        while (it.hasNext()) {
-            size++;
-            it.next();
-        }
-        return size;
+        return -1;
     }
 }
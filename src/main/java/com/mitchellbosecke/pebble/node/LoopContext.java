@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.node;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The "loop" variable available within a for loop. A single instance is
+ * updated in place for every iteration; the values are computed when they are
+ * read rather than stored.
+ * <p>
+ * If the size of the iterable is not known up front (i.e. it is not a
+ * collection, map or array) the loop iterates it lazily in a single pass. The
+ * "last" value then looks ahead one element and only reading "length" or
+ * "revindex" requires the remaining elements to be fetched and buffered.
+ * <p>
+ * Because the instance changes with every iteration, a copy that no longer
+ * changes is stored instead when "loop" is assigned with the "set" tag,
+ * passed to a macro or copied for a "parallel" tag (see {@link #snapshot()}).
+ * A "loop" which is put into a collection or handed to a function is the
+ * instance itself and shows the iteration which is current when it is read.
+ * <p>
+ * It is exposed to templates as a read-only map with the keys "index",
+ * "revindex", "first", "last" and "length" so that it behaves exactly like
+ * the map that was previously used.
+ *
+ * @author Mitchell
+ */
+public class LoopContext extends AbstractMap<String, Object> {
+
+    private static final int UNKNOWN_LENGTH = -1;
+
+    /**
+     * The elements which have not been iterated yet, null for a snapshot.
+     */
+    private Iterator<?> iterator;
+
+    /**
+     * Whether the length was unknown when the loop started. The iterator of
+     * such a loop may be replaced by {@link #getLength()} while a snapshot
+     * is read by another thread, so it is only used while holding the lock
+     * of the loop.
+     */
+    private final boolean lazy;
+
+    private int length;
+
+    private int index;
+
+    /**
+     * The loop a snapshot was taken of, used to find out the length of a
+     * lazy loop once it is read; null if the length is known.
+     */
+    private final LoopContext source;
+
+    /**
+     * Whether a snapshot was taken at the last iteration.
+     */
+    private final boolean last;
+
+    /**
+     * Constructor
+     *
+     * @param iterator The iterator of the elements to loop over
+     * @param length   The amount of elements or a negative number if unknown
+     */
+    LoopContext(Iterator<?> iterator, int length) {
+        this(iterator, length, 0);
+    }
+
+    /**
+     * Constructor for a loop which starts in the middle of the elements, i.e.
+     * a chunk of a parallel loop.
+     *
+     * @param iterator The iterator of the elements to loop over
+     * @param length   The amount of elements of the whole loop or a negative
+     *                 number if unknown
+     * @param offset   The index of the first element of the iterator
+     */
+    LoopContext(Iterator<?> iterator, int length, int offset) {
+        this.iterator = iterator;
+        this.lazy = length < 0;
+        this.length = length < 0 ? UNKNOWN_LENGTH : length;
+        this.index = offset - 1;
+        this.source = null;
+        this.last = false;
+    }
+
+    /**
+     * Constructor for a snapshot of the current iteration of a loop.
+     *
+     * @param loop The loop
+     */
+    private LoopContext(LoopContext loop) {
+        this.iterator = null;
+        this.lazy = false;
+        this.index = loop.index;
+        this.last = loop.isLast();
+        if (loop.lazy) {
+            synchronized (loop) {
+                this.length = loop.length;
+            }
+        } else {
+            this.length = loop.length;
+        }
+        this.source = length == UNKNOWN_LENGTH ? loop : null;
+    }
+
+    boolean hasNext() {
+        if (lazy) {
+            synchronized (this) {
+                return iterator.hasNext();
+            }
+        }
+        return iterator.hasNext();
+    }
+
+    /**
+     * Moves the loop to the next iteration.
+     *
+     * @return The element of the next iteration
+     */
+    Object next() {
+        if (lazy) {
+            synchronized (this) {
+                index++;
+                return iterator.next();
+            }
+        }
+        index++;
+        return iterator.next();
+    }
+
+    /**
+     * Creates a copy which will no longer be updated by the loop. The length
+     * of a loop over an iterable of unknown size is only fetched once it is
+     * read from the copy.
+     *
+     * @return A snapshot of the current iteration
+     */
+    public LoopContext snapshot() {
+        return iterator == null ? this : new LoopContext(this);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getRevindex() {
+        return getLength() - index - 1;
+    }
+
+    public boolean isFirst() {
+        return index == 0;
+    }
+
+    public boolean isLast() {
+        if (iterator == null) {
+            return last;
+        } else if (lazy) {
+            synchronized (this) {
+                return length == UNKNOWN_LENGTH ? !iterator.hasNext() : index == length - 1;
+            }
+        }
+        return index == length - 1;
+    }
+
+    public int getLength() {
+        if (source != null) {
+            if (length == UNKNOWN_LENGTH) {
+                length = source.getLength();
+            }
+        } else if (lazy) {
+            synchronized (this) {
+                if (length == UNKNOWN_LENGTH) {
+                    List<Object> remaining = new ArrayList<Object>();
+                    while (iterator.hasNext()) {
+                        remaining.add(iterator.next());
+                    }
+                    length = index + 1 + remaining.size();
+                    iterator = remaining.iterator();
+                }
+            }
+        }
+        return length;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if ("index".equals(key)) {
+            return getIndex();
+        } else if ("revindex".equals(key)) {
+            return getRevindex();
+        } else if ("first".equals(key)) {
+            return isFirst();
+        } else if ("last".equals(key)) {
+            return isLast();
+        } else if ("length".equals(key)) {
+            return getLength();
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return "index".equals(key) || "revindex".equals(key) || "first".equals(key) || "last".equals(key)
+                || "length".equals(key);
+    }
+
+    @Override
+    public int size() {
+        return 5;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("index", getIndex());
+        map.put("revindex", getRevindex());
+        map.put("first", isFirst());
+        map.put("last", isLast());
+        map.put("length", getLength());
+        return map.entrySet();
+    }
+}
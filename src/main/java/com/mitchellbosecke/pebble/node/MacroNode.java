@@ -15,9 +15,12 @@ import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.Macro;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
 import com.mitchellbosecke.pebble.template.ScopeChain;
+import com.mitchellbosecke.pebble.template.SymbolTable;
+import com.mitchellbosecke.pebble.utils.BufferPool;
+import com.mitchellbosecke.pebble.utils.OutputLengthEstimator;
+import com.mitchellbosecke.pebble.utils.StringBuilderWriter;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,6 +34,12 @@ public class MacroNode extends AbstractRenderableNode {
 
     private final BodyNode body;
 
+    /**
+     * Estimates the length of the output, used to size the buffer it is
+     * rendered into.
+     */
+    private final OutputLengthEstimator outputLength = new OutputLengthEstimator();
+
     public MacroNode(String name, ArgumentsNode args, BodyNode body) {
         this.name = name;
         this.args = args;
@@ -68,33 +77,41 @@ public class MacroNode extends AbstractRenderableNode {
             @Override
             public String call(PebbleTemplateImpl self, EvaluationContext context, Map<String, Object> macroArgs)
                     throws PebbleException {
-                Writer writer = new StringWriter();
                 ScopeChain scopeChain = context.getScopeChain();
 
-                // scope for default arguments
+                /*
+                 * A single local scope holds the arguments. A default value is
+                 * only used if the user did not provide a non-null value.
+                 */
                 scopeChain.pushLocalScope();
                 for (NamedArgumentNode arg : getArgs().getNamedArgs()) {
-                    Expression<?> valueExpression = arg.getValueExpression();
-                    if (valueExpression == null) {
-                        scopeChain.put(arg.getName(), null);
-                    } else {
-                        scopeChain.put(arg.getName(), arg.getValueExpression().evaluate(self, context));
+                    Object value = macroArgs.get(arg.getName());
+                    if (value == null) {
+                        Expression<?> valueExpression = arg.getValueExpression();
+                        value = valueExpression == null ? null : valueExpression.evaluate(self, context);
+                    }
+                    if (value instanceof LoopContext) {
+                        value = ((LoopContext) value).snapshot();
                     }
+                    scopeChain.put(arg.getSymbol(), arg.getName(), value);
                 }
+                scopeChain.put(SymbolTable.SELF_SYMBOL, "_self", macroArgs.get("_self"));
+                scopeChain.put(SymbolTable.CONTEXT_SYMBOL, "_context", macroArgs.get("_context"));
 
-                // scope for user provided arguments
-                scopeChain.pushScope(macroArgs);
-
+                BufferPool bufferPool = context.getBufferPool();
+                StringBuilderWriter writer = bufferPool.acquireWriter(outputLength.estimate());
                 try {
                     getBody().render(self, writer, context);
+                    outputLength.record(writer.length());
+
+                    scopeChain.popScope();
+
+                    return writer.toString();
                 } catch (IOException e) {
                     throw new RuntimeException("Could not evaluate macro [" + name + "]", e);
+                } finally {
+                    bufferPool.releaseWriter(writer);
                 }
-
-                scopeChain.popScope(); // user arguments
-                scopeChain.popScope(); // default arguments
-
-                return writer.toString();
             }
 
         };
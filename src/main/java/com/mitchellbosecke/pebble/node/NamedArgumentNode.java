@@ -10,15 +10,31 @@ package com.mitchellbosecke.pebble.node;
 
 import com.mitchellbosecke.pebble.extension.NodeVisitor;
 import com.mitchellbosecke.pebble.node.expression.Expression;
+import com.mitchellbosecke.pebble.template.SymbolTable;
 
 public class NamedArgumentNode implements Node {
 
-    private final Expression<?> value;
+    private Expression<?> value;
 
     private final String name;
 
+    private final int symbol;
+
     public NamedArgumentNode(String name, Expression<?> value) {
+        this(name, value, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name        The name of the argument
+     * @param value       The value of the argument
+     * @param symbolTable The symbol table to resolve the name with, may be
+     *                    null
+     */
+    public NamedArgumentNode(String name, Expression<?> value, SymbolTable symbolTable) {
         this.name = name;
+        this.symbol = symbolTable == null ? SymbolTable.UNKNOWN_SYMBOL : symbolTable.getSymbol(name);
         this.value = value;
     }
 
@@ -31,8 +47,23 @@ public class NamedArgumentNode implements Node {
         return value;
     }
 
+    public void setValueExpression(Expression<?> value) {
+        this.value = value;
+    }
+
     public String getName() {
         return name;
     }
 
+    /**
+     * Returns the id of the argument name which is used when the argument
+     * becomes a variable, i.e. the arguments of a macro.
+     *
+     * @return The id of the argument name, see {@link SymbolTable}, or a
+     * negative number if it was not resolved
+     */
+    public int getSymbol() {
+        return symbol;
+    }
+
 }
@@ -12,15 +12,19 @@ import com.mitchellbosecke.pebble.error.PebbleException;
 import com.mitchellbosecke.pebble.extension.NodeVisitor;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+import com.mitchellbosecke.pebble.utils.BufferPool;
 import com.mitchellbosecke.pebble.utils.FutureWriter;
+import com.mitchellbosecke.pebble.utils.ListenableForkJoinTask;
+import com.mitchellbosecke.pebble.utils.OutputLengthEstimator;
+import com.mitchellbosecke.pebble.utils.StringBuilderWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 
 public class ParallelNode extends AbstractRenderableNode {
@@ -37,6 +41,12 @@ public class ParallelNode extends AbstractRenderableNode {
      */
     private boolean hasWarnedAboutNonExistingExecutorService = false;
 
+    /**
+     * Estimates the length of the output, used to size the buffer it is
+     * rendered into.
+     */
+    private final OutputLengthEstimator outputLength = new OutputLengthEstimator();
+
     public ParallelNode(int lineNumber, BodyNode body) {
         super(lineNumber);
         this.body = body;
@@ -68,21 +78,47 @@ public class ParallelNode extends AbstractRenderableNode {
 
             final EvaluationContext contextCopy = context.threadSafeCopy(self);
 
-            final StringWriter newStringWriter = new StringWriter();
-            final Writer newFutureWriter = new FutureWriter(newStringWriter);
-
-            Future<String> future = es.submit(new Callable<String>() {
+            Callable<String> callable = new Callable<String>() {
 
                 @Override
                 public String call() throws PebbleException, IOException {
-                    body.render(self, newFutureWriter, contextCopy);
-                    newFutureWriter.flush();
-                    newFutureWriter.close();
-                    return newStringWriter.toString();
+                    /*
+                     * The buffer is pooled per thread so it has to be
+                     * acquired and released by the thread that renders into
+                     * it.
+                     */
+                    BufferPool bufferPool = contextCopy.getBufferPool();
+                    StringBuilderWriter newStringWriter = bufferPool.acquireWriter(outputLength.estimate());
+                    try {
+                        Writer newFutureWriter = new FutureWriter(newStringWriter);
+                        body.render(self, newFutureWriter, contextCopy);
+                        newFutureWriter.flush();
+                        newFutureWriter.close();
+                        outputLength.record(newStringWriter.length());
+                        return newStringWriter.toString();
+                    } finally {
+                        bufferPool.releaseWriter(newStringWriter);
+                    }
                 }
-            });
-            ((FutureWriter) writer).enqueue(future);
+            };
+
+            ((FutureWriter) writer).enqueue(submit(es, callable));
+        }
+    }
+
+    /**
+     * Runs the rendering of a part of a template in the background. A fork
+     * join pool gets a task which is joined instead of waited for.
+     *
+     * @param es       The executor service of the engine
+     * @param callable Renders the part of the template and returns its output
+     * @return The future output
+     */
+    static Future<String> submit(ExecutorService es, Callable<String> callable) {
+        if (es instanceof ForkJoinPool) {
+            return ListenableForkJoinTask.fork((ForkJoinPool) es, callable);
         }
+        return es.submit(callable);
     }
 
     @Override
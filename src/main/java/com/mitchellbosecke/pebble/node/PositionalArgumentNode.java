@@ -13,7 +13,7 @@ import com.mitchellbosecke.pebble.node.expression.Expression;
 
 public class PositionalArgumentNode implements Node {
 
-    private final Expression<?> value;
+    private Expression<?> value;
 
     public PositionalArgumentNode(Expression<?> value) {
         this.value = value;
@@ -28,4 +28,8 @@ public class PositionalArgumentNode implements Node {
         return value;
     }
 
+    public void setValueExpression(Expression<?> value) {
+        this.value = value;
+    }
+
 }
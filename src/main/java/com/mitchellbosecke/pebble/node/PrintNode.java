@@ -11,6 +11,7 @@ package com.mitchellbosecke.pebble.node;
 import com.mitchellbosecke.pebble.error.PebbleException;
 import com.mitchellbosecke.pebble.extension.NodeVisitor;
 import com.mitchellbosecke.pebble.node.expression.Expression;
+import com.mitchellbosecke.pebble.node.expression.FilterExpression;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
 import com.mitchellbosecke.pebble.utils.StringUtils;
@@ -30,6 +31,10 @@ public class PrintNode extends AbstractRenderableNode {
     @Override
     public void render(PebbleTemplateImpl self, Writer writer, EvaluationContext context) throws IOException,
             PebbleException {
+        if (expression instanceof FilterExpression) {
+            ((FilterExpression) expression).render(self, context, writer);
+            return;
+        }
         Object var = expression.evaluate(self, context);
         if (var != null) {
             writer.write(StringUtils.toString(var));
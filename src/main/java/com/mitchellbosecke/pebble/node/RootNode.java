@@ -23,12 +23,12 @@ public class RootNode extends AbstractRenderableNode {
     public RootNode(BodyNode body) {
         super(0);
         this.body = body;
+        this.body.setOnlyRenderInheritanceSafeNodes(true);
     }
 
     @Override
     public void render(PebbleTemplateImpl self, Writer writer, EvaluationContext context) throws PebbleException,
             IOException {
-        body.setOnlyRenderInheritanceSafeNodes(true);
         body.render(self, writer, context);
     }
 
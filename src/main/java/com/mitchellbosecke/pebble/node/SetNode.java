@@ -13,6 +13,7 @@ import com.mitchellbosecke.pebble.extension.NodeVisitor;
 import com.mitchellbosecke.pebble.node.expression.Expression;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+import com.mitchellbosecke.pebble.template.SymbolTable;
 
 import java.io.Writer;
 
@@ -20,17 +21,38 @@ public class SetNode extends AbstractRenderableNode {
 
     private final String name;
 
-    private final Expression<?> value;
+    private final int symbol;
+
+    private Expression<?> value;
 
     public SetNode(int lineNumber, String name, Expression<?> value) {
+        this(lineNumber, name, value, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param lineNumber  The line number
+     * @param name        The name of the variable
+     * @param value       The value of the variable
+     * @param symbolTable The symbol table to resolve the name with, may be
+     *                    null
+     */
+    public SetNode(int lineNumber, String name, Expression<?> value, SymbolTable symbolTable) {
         super(lineNumber);
         this.name = name;
+        this.symbol = symbolTable == null ? SymbolTable.UNKNOWN_SYMBOL : symbolTable.getSymbol(name);
         this.value = value;
     }
 
     @Override
     public void render(PebbleTemplateImpl self, Writer writer, EvaluationContext context) throws PebbleException {
-        context.getScopeChain().put(name, value.evaluate(self, context));
+        Object result = value.evaluate(self, context);
+        if (result instanceof LoopContext) {
+            // the loop variable changes with every iteration
+            result = ((LoopContext) result).snapshot();
+        }
+        context.getScopeChain().put(symbol, name, result);
     }
 
     @Override
@@ -42,6 +64,10 @@ public class SetNode extends AbstractRenderableNode {
         return value;
     }
 
+    public void setValue(Expression<?> value) {
+        this.value = value;
+    }
+
     public String getName() {
         return name;
     }
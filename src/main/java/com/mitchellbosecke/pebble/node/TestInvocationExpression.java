@@ -10,6 +10,7 @@ package com.mitchellbosecke.pebble.node;
 
 import com.mitchellbosecke.pebble.error.PebbleException;
 import com.mitchellbosecke.pebble.extension.NodeVisitor;
+import com.mitchellbosecke.pebble.extension.Test;
 import com.mitchellbosecke.pebble.node.expression.Expression;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
@@ -24,6 +25,12 @@ public class TestInvocationExpression implements Expression<Object> {
 
     private final String testName;
 
+    /**
+     * The test which was bound while parsing, or null if it is looked up when
+     * the template is evaluated.
+     */
+    private final Test test;
+
     private final ArgumentsNode args;
 
     private final int lineNumber;
@@ -34,7 +41,12 @@ public class TestInvocationExpression implements Expression<Object> {
     }
 
     public TestInvocationExpression(int lineNumber, String testName, ArgumentsNode args) {
+        this(lineNumber, testName, null, args);
+    }
+
+    public TestInvocationExpression(int lineNumber, String testName, Test test, ArgumentsNode args) {
         this.testName = testName;
+        this.test = test;
         this.args = args;
         this.lineNumber = lineNumber;
     }
@@ -52,6 +64,10 @@ public class TestInvocationExpression implements Expression<Object> {
         return testName;
     }
 
+    public Test getTest() {
+        return test;
+    }
+
     @Override
     public int getLineNumber() {
         return this.lineNumber;
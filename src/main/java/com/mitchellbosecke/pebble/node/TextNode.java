@@ -10,10 +10,13 @@ package com.mitchellbosecke.pebble.node;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import com.mitchellbosecke.pebble.extension.NodeVisitor;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+import com.mitchellbosecke.pebble.utils.FutureWriter;
+import com.mitchellbosecke.pebble.utils.Utf8Writer;
 
 /**
  * Represents static text in a template.
@@ -29,6 +32,13 @@ public class TextNode extends AbstractRenderableNode {
      */
     private final char[] data;
 
+    /**
+     * The text encoded to UTF-8 so that it can be copied as is when the
+     * template is evaluated into an output stream. It is only encoded the
+     * first time it is needed.
+     */
+    private volatile byte[] utf8Data;
+
     public TextNode(String text, int lineNumber) {
         super(lineNumber);
 
@@ -39,7 +49,27 @@ public class TextNode extends AbstractRenderableNode {
 
     @Override
     public void render(PebbleTemplateImpl self, Writer writer, EvaluationContext context) throws IOException {
-        writer.write(data);
+        Utf8Writer utf8Writer = null;
+        if (writer instanceof Utf8Writer) {
+            utf8Writer = (Utf8Writer) writer;
+        } else if (writer instanceof FutureWriter) {
+            utf8Writer = ((FutureWriter) writer).getUtf8Writer();
+        }
+
+        if (utf8Writer != null) {
+            utf8Writer.writeUtf8(getUtf8Data());
+        } else {
+            writer.write(data);
+        }
+    }
+
+    private byte[] getUtf8Data() {
+        byte[] bytes = utf8Data;
+        if (bytes == null) {
+            bytes = new String(data).getBytes(StandardCharsets.UTF_8);
+            utf8Data = bytes;
+        }
+        return bytes;
     }
 
     @Override
@@ -9,14 +9,15 @@
 package com.mitchellbosecke.pebble.node.expression;
 
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
 
 import com.mitchellbosecke.pebble.error.PebbleException;
 import com.mitchellbosecke.pebble.extension.NodeVisitor;
 import com.mitchellbosecke.pebble.node.ArgumentsNode;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+import com.mitchellbosecke.pebble.utils.BufferPool;
+import com.mitchellbosecke.pebble.utils.OutputLengthEstimator;
+import com.mitchellbosecke.pebble.utils.StringBuilderWriter;
 
 public class BlockFunctionExpression implements Expression<String> {
 
@@ -24,6 +25,12 @@ public class BlockFunctionExpression implements Expression<String> {
 
     private final int lineNumber;
 
+    /**
+     * Estimates the length of the output, used to size the buffer it is
+     * rendered into.
+     */
+    private final OutputLengthEstimator outputLength = new OutputLengthEstimator();
+
     public BlockFunctionExpression(ArgumentsNode args, int lineNumber) {
         this.blockNameExpression = args.getPositionalArgs().get(0).getValueExpression();
         this.lineNumber = lineNumber;
@@ -31,14 +38,18 @@ public class BlockFunctionExpression implements Expression<String> {
 
     @Override
     public String evaluate(PebbleTemplateImpl self, EvaluationContext context) throws PebbleException {
-        Writer writer = new StringWriter();
         String blockName = (String) blockNameExpression.evaluate(self, context);
+        BufferPool bufferPool = context.getBufferPool();
+        StringBuilderWriter writer = bufferPool.acquireWriter(outputLength.estimate());
         try {
             self.block(writer, context, blockName, false);
+            outputLength.record(writer.length());
+            return writer.toString();
         } catch (IOException e) {
             throw new PebbleException(e, "Could not render block [" + blockName + "]", this.getLineNumber(), self.getName());
+        } finally {
+            bufferPool.releaseWriter(writer);
         }
-        return writer.toString();
     }
 
     @Override
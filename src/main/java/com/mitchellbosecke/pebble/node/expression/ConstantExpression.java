@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.node.expression;
+
+import com.mitchellbosecke.pebble.extension.NodeVisitor;
+import com.mitchellbosecke.pebble.template.EvaluationContext;
+import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+
+/**
+ * The result of an expression which was already evaluated while compiling the
+ * template because it only consists of literals, i.e. {@code 60 * 60} or
+ * {@code "a" ~ "b"}.
+ * <p>
+ * Unlike a {@link LiteralStringExpression} it is not considered to be safe by
+ * the escaper, the result of an expression is escaped just like it was before
+ * it was evaluated.
+ * <p>
+ * Lists and maps are only folded where the template reads them without
+ * keeping them, i.e. as the iterable of a "for" tag, and are unmodifiable;
+ * the same instance is returned by every evaluation.
+ *
+ * @author Mitchell
+ */
+public class ConstantExpression implements Expression<Object> {
+
+    private final Object value;
+
+    private final int lineNumber;
+
+    public ConstantExpression(Object value, int lineNumber) {
+        this.value = value;
+        this.lineNumber = lineNumber;
+    }
+
+    @Override
+    public void accept(NodeVisitor visitor) {
+        visitor.visit(this);
+    }
+
+    @Override
+    public Object evaluate(PebbleTemplateImpl self, EvaluationContext context) {
+        return value;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public int getLineNumber() {
+        return this.lineNumber;
+    }
+}
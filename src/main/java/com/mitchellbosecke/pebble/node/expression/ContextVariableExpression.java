@@ -14,15 +14,35 @@ import com.mitchellbosecke.pebble.extension.NodeVisitor;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
 import com.mitchellbosecke.pebble.template.ScopeChain;
+import com.mitchellbosecke.pebble.template.SymbolTable;
 
 public class ContextVariableExpression implements Expression<Object> {
 
     protected final String name;
 
+    /**
+     * The id of the variable name, resolved once so that the scope chain does
+     * not need to hash the name on every evaluation.
+     */
+    private final int symbol;
+
     private final int lineNumber;
 
     public ContextVariableExpression(String name, int lineNumber) {
+        this(name, lineNumber, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param name        The name of the variable
+     * @param lineNumber  The line number
+     * @param symbolTable The symbol table to resolve the name with, may be
+     *                    null
+     */
+    public ContextVariableExpression(String name, int lineNumber, SymbolTable symbolTable) {
         this.name = name;
+        this.symbol = symbolTable == null ? SymbolTable.UNKNOWN_SYMBOL : symbolTable.getSymbol(name);
         this.lineNumber = lineNumber;
     }
 
@@ -38,8 +58,8 @@ public class ContextVariableExpression implements Expression<Object> {
     @Override
     public Object evaluate(PebbleTemplateImpl self, EvaluationContext context) throws PebbleException {
         ScopeChain scopeChain = context.getScopeChain();
-        Object result = scopeChain.get(name);
-        if (result == null && context.isStrictVariables() && !scopeChain.containsKey(name)) {
+        Object result = scopeChain.get(symbol, name);
+        if (result == null && context.isStrictVariables() && !scopeChain.containsKey(symbol, name)) {
             throw new RootAttributeNotFoundException(null, String.format(
                     "Root attribute [%s] does not exist or can not be accessed and strict variables is set to true.",
                     this.name), this.name, this.lineNumber, self.getName());
@@ -10,20 +10,28 @@ package com.mitchellbosecke.pebble.node.expression;
 
 import com.mitchellbosecke.pebble.error.AttributeNotFoundException;
 import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
+import com.mitchellbosecke.pebble.extension.Arguments;
+import com.mitchellbosecke.pebble.extension.ArgumentsFilter;
 import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.StreamingFilter;
 import com.mitchellbosecke.pebble.extension.core.DefaultFilter;
 import com.mitchellbosecke.pebble.extension.escaper.EscapeFilter;
 import com.mitchellbosecke.pebble.extension.escaper.SafeString;
 import com.mitchellbosecke.pebble.node.ArgumentsNode;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+import com.mitchellbosecke.pebble.utils.StringUtils;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Map;
 
 public class FilterExpression extends BinaryExpression<Object> {
 
     /**
-     * Save the filter instance on the first evaluation.
+     * Save the filter instance on the first evaluation if it was not bound
+     * while parsing.
      */
     private Filter filter = null;
 
@@ -34,21 +42,112 @@ public class FilterExpression extends BinaryExpression<Object> {
 
     @Override
     public Object evaluate(PebbleTemplateImpl self, EvaluationContext context) throws PebbleException {
+        Filter filter = getFilter(self, context);
+        ArgumentsNode args = getFilterInvocation().getArgs();
 
-        FilterInvocationExpression filterInvocation = (FilterInvocationExpression) getRightExpression();
-        ArgumentsNode args = filterInvocation.getArgs();
+        Arguments arguments = null;
+        Map<String, Object> namedArguments = null;
+        if (usesArguments(filter)) {
+            arguments = args.getArguments(self, context, filter);
+        } else {
+            namedArguments = args.getArgumentMap(self, context, filter);
+        }
+
+        Object input = evaluateInput(self, context, filter);
+
+        if (arguments != null) {
+            return ((ArgumentsFilter) filter).apply(input, arguments);
+        }
+        return filter.apply(input, namedArguments);
+    }
+
+    /**
+     * Writes the result of the filter into a writer. A {@link StreamingFilter}
+     * writes its result directly instead of creating a string first. If the
+     * filter can wrap the writer and the filter on the left hand side is a
+     * streaming filter as well, the left hand side is rendered into the
+     * wrapped writer so that neither result is created as a whole, i.e.
+     * <code>{{ items | join(", ") | escape }}</code>.
+     *
+     * @param self    The template being evaluated
+     * @param context The evaluation context
+     * @param writer  The writer to write the result to
+     * @throws PebbleException Thrown if the expression can not be evaluated
+     * @throws IOException     Thrown by the writer
+     */
+    public void render(PebbleTemplateImpl self, EvaluationContext context, Writer writer) throws PebbleException,
+            IOException {
+        Filter filter = getFilter(self, context);
+
+        if (!(filter instanceof StreamingFilter) || !usesArguments(filter)) {
+            Object result = evaluate(self, context);
+            if (result != null) {
+                writer.write(StringUtils.toString(result));
+            }
+            return;
+        }
+
+        StreamingFilter streamingFilter = (StreamingFilter) filter;
+        Arguments arguments = getFilterInvocation().getArgs().getArguments(self, context, filter);
+
+        /*
+         * The escape filter is the only streaming filter whose output must
+         * not be treated as regular text by the filter on the right.
+         */
+        if (getLeftExpression() instanceof FilterExpression) {
+            FilterExpression left = (FilterExpression) getLeftExpression();
+            Filter leftFilter = left.getFilter(self, context);
+            if (leftFilter instanceof StreamingFilter && !(leftFilter instanceof EscapeFilter)) {
+                Writer wrapped = streamingFilter.wrap(writer, arguments);
+                if (wrapped != null) {
+                    try {
+                        left.render(self, context, wrapped);
+                    } finally {
+                        wrapped.close();
+                    }
+                    return;
+                }
+            }
+        }
+
+        streamingFilter.apply(evaluateInput(self, context, filter), arguments, writer);
+    }
+
+    /**
+     * A filter extending one of the core filters is called through the map
+     * based method if it overrides that method.
+     */
+    private static boolean usesArguments(Filter filter) {
+        if (filter instanceof AbstractArgumentsFilter) {
+            return !((AbstractArgumentsFilter) filter).isMapBased();
+        }
+        return filter instanceof ArgumentsFilter;
+    }
+
+    private FilterInvocationExpression getFilterInvocation() {
+        return (FilterInvocationExpression) getRightExpression();
+    }
+
+    private Filter getFilter(PebbleTemplateImpl self, EvaluationContext context) throws PebbleException {
+        FilterInvocationExpression filterInvocation = getFilterInvocation();
         String filterName = filterInvocation.getFilterName();
 
         if (this.filter == null) {
-            this.filter = context.getExtensionRegistry().getFilter(filterInvocation.getFilterName());
+            this.filter = filterInvocation.getFilter();
+            if (this.filter == null) {
+                this.filter = context.getExtensionRegistry().getFilter(filterName);
+            }
         }
 
         if (filter == null) {
             throw new PebbleException(null, String.format("Filter [%s] does not exist.", filterName),
                     this.getLineNumber(), self.getName());
         }
+        return filter;
+    }
 
-        Map<String, Object> namedArguments = args.getArgumentMap(self, context, filter);
+    private Object evaluateInput(PebbleTemplateImpl self, EvaluationContext context, Filter filter)
+            throws PebbleException {
 
         // This check is not nice, because we use instanceof. However this is
         // the only filter which should not fail in strict mode, when the variable
@@ -68,7 +167,6 @@ public class FilterExpression extends BinaryExpression<Object> {
         if (input instanceof SafeString && !(filter instanceof EscapeFilter)) {
             input = input.toString();
         }
-
-        return filter.apply(input, namedArguments);
+        return input;
     }
 }
@@ -9,6 +9,7 @@
 package com.mitchellbosecke.pebble.node.expression;
 
 import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.extension.Filter;
 import com.mitchellbosecke.pebble.extension.NodeVisitor;
 import com.mitchellbosecke.pebble.node.ArgumentsNode;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
@@ -24,12 +25,23 @@ public class FilterInvocationExpression implements Expression<Object> {
 
     private final String filterName;
 
+    /**
+     * The filter which was bound while parsing, or null if it is looked up
+     * when the template is evaluated.
+     */
+    private final Filter filter;
+
     private final ArgumentsNode args;
 
     private final int lineNumber;
 
     public FilterInvocationExpression(String filterName, ArgumentsNode args, int lineNumber) {
+        this(filterName, null, args, lineNumber);
+    }
+
+    public FilterInvocationExpression(String filterName, Filter filter, ArgumentsNode args, int lineNumber) {
         this.filterName = filterName;
+        this.filter = filter;
         this.args = args;
         this.lineNumber = lineNumber;
     }
@@ -52,6 +64,10 @@ public class FilterInvocationExpression implements Expression<Object> {
         return filterName;
     }
 
+    public Filter getFilter() {
+        return filter;
+    }
+
     @Override
     public int getLineNumber() {
         return this.lineNumber;
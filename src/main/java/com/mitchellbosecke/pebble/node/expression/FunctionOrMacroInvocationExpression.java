@@ -9,46 +9,86 @@
 package com.mitchellbosecke.pebble.node.expression;
 
 import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFunction;
+import com.mitchellbosecke.pebble.extension.ArgumentsFunction;
 import com.mitchellbosecke.pebble.extension.Function;
 import com.mitchellbosecke.pebble.extension.NodeVisitor;
 import com.mitchellbosecke.pebble.node.ArgumentsNode;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Map;
 
 public class  FunctionOrMacroInvocationExpression implements Expression<Object> {
 
     private final String functionName;
 
+    /**
+     * The function which was bound while parsing; null if this is a macro
+     * invocation.
+     */
+    private final Function function;
+
+    /**
+     * Whether or not the function was already resolved while parsing.
+     */
+    private final boolean bound;
+
     private final ArgumentsNode args;
 
     private final int lineNumber;
 
+    /**
+     * Creates an invocation which looks up the function every time it is
+     * evaluated.
+     */
     public FunctionOrMacroInvocationExpression(String functionName, ArgumentsNode arguments, int lineNumber) {
+        this(functionName, null, false, arguments, lineNumber);
+    }
+
+    /**
+     * Creates an invocation of a function which was already resolved, or of a
+     * macro if the function is null.
+     */
+    public FunctionOrMacroInvocationExpression(String functionName, Function function, ArgumentsNode arguments,
+            int lineNumber) {
+        this(functionName, function, true, arguments, lineNumber);
+    }
+
+    private FunctionOrMacroInvocationExpression(String functionName, Function function, boolean bound,
+            ArgumentsNode arguments, int lineNumber) {
         this.functionName = functionName;
+        this.function = function;
+        this.bound = bound;
         this.args = arguments;
         this.lineNumber = lineNumber;
     }
 
     @Override
     public Object evaluate(PebbleTemplateImpl self, EvaluationContext context) throws PebbleException {
-        Function function = context.getExtensionRegistry().getFunction(functionName);
+        Function function = bound ? this.function : context.getExtensionRegistry().getFunction(functionName);
         if (function != null) {
             return applyFunction(self, context, function, args);
         }
         return self.macro(context, functionName, args, false);
     }
 
+    /**
+     * A function extending one of the core functions is called through the map
+     * based method if it overrides that method.
+     */
+    private static boolean usesArguments(Function function) {
+        if (function instanceof AbstractArgumentsFunction) {
+            return !((AbstractArgumentsFunction) function).isMapBased();
+        }
+        return function instanceof ArgumentsFunction;
+    }
+
     private Object applyFunction(PebbleTemplateImpl self, EvaluationContext context, Function function,
             ArgumentsNode args) throws PebbleException {
-        List<Object> arguments = new ArrayList<Object>();
-
-        Collections.addAll(arguments, args);
-
+        if (usesArguments(function)) {
+            return ((ArgumentsFunction) function).execute(args.getArguments(self, context, function));
+        }
         Map<String, Object> namedArguments = args.getArgumentMap(self, context, function);
         return function.execute(namedArguments);
     }
@@ -62,6 +102,10 @@ public class  FunctionOrMacroInvocationExpression implements Expression<Object>
         return functionName;
     }
 
+    public Function getFunction() {
+        return function;
+    }
+
     public ArgumentsNode getArguments() {
         return args;
     }
@@ -14,6 +14,7 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.node.expression;
 
+import com.mitchellbosecke.pebble.attributes.MemberAccessor;
 import com.mitchellbosecke.pebble.error.AttributeNotFoundException;
 import com.mitchellbosecke.pebble.error.PebbleException;
 import com.mitchellbosecke.pebble.error.RootAttributeNotFoundException;
@@ -23,10 +24,9 @@ import com.mitchellbosecke.pebble.node.PositionalArgumentNode;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
 
-import java.lang.reflect.*;
+import java.lang.reflect.Array;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Used to get an attribute from an object. It will look up attributes in the
@@ -37,6 +37,15 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class GetAttributeExpression implements Expression<Object> {
 
+	/**
+	 * The number of receiver classes remembered by the inline cache before this
+	 * node is considered megamorphic and only the member accessor registry is
+	 * used.
+	 */
+	private static final int INLINE_CACHE_SIZE = 4;
+
+	private static final InlineCacheEntry[] EMPTY_INLINE_CACHE = new InlineCacheEntry[0];
+
 	private final Expression<?> node;
 
 	private final Expression<?> attributeNameExpression;
@@ -48,9 +57,12 @@ public class GetAttributeExpression implements Expression<Object> {
 	private final int lineNumber;
 
 	/**
-	 * Potentially cached on first evaluation.
+	 * Small copy-on-write cache of the most recently resolved members which is
+	 * checked by class identity before falling back to the member accessor
+	 * registry. Most nodes only ever see a single class so this avoids
+	 * allocating a key and hashing it on every evaluation.
 	 */
-	private final ConcurrentHashMap<MemberCacheKey, Member> memberCache;
+	private volatile InlineCacheEntry[] inlineCache = EMPTY_INLINE_CACHE;
 
 	public GetAttributeExpression(Expression<?> node, Expression<?> attributeNameExpression, String filename,
 			int lineNumber) {
@@ -65,12 +77,6 @@ public class GetAttributeExpression implements Expression<Object> {
 		this.args = args;
 		this.filename = filename;
 		this.lineNumber = lineNumber;
-
-		/*
-		 * I dont imagine that users will often give different types to the same
-		 * template so we will give this cache a pretty small initial capacity.
-		 */
-		this.memberCache = new ConcurrentHashMap<MemberCacheKey, Member>(2, 0.9f, 1);
 	}
 
 	@Override
@@ -83,9 +89,9 @@ public class GetAttributeExpression implements Expression<Object> {
 
 		Object[] argumentValues = null;
 
-		Member member = object == null ? null : memberCache.get(new MemberCacheKey(object.getClass(), attributeName));
+		MemberAccessor accessor = object == null ? null : getCachedAccessor(object.getClass(), attributeName);
 
-		if (object != null && member == null) {
+		if (object != null && accessor == null) {
 
 			/*
 			 * If, and only if, no arguments were provided does it make sense to
@@ -159,18 +165,19 @@ public class GetAttributeExpression implements Expression<Object> {
 				}
 			}
 
-			member = reflect(object, attributeName, argumentTypes);
-			if (member != null) {
-				memberCache.put(new MemberCacheKey(object.getClass(), attributeName), member);
+			accessor = context.getMemberAccessorRegistry().getAccessor(object.getClass(), attributeName,
+					argumentTypes);
+			if (accessor != null) {
+				addToInlineCache(object.getClass(), attributeName, accessor);
 			}
 
 		}
 
-		if (object != null && member != null) {
+		if (object != null && accessor != null) {
 			if (argumentValues == null) {
 				argumentValues = getArgumentValues(self, context);
 			}
-			result = invokeMember(object, member, argumentValues);
+			result = accessor.invoke(object, argumentValues);
 		} else if (context.isStrictVariables()) {
 			if (object == null) {
 
@@ -200,30 +207,39 @@ public class GetAttributeExpression implements Expression<Object> {
 	}
 
 	/**
-	 * Invoke the "Member" that was found via reflection.
+	 * Looks up a previously resolved member in the inline cache.
 	 *
-	 * @param object
-	 * @param member
-	 * @param argumentValues
+	 * @param clazz
+	 * @param attributeName
 	 * @return
 	 */
-	private Object invokeMember(Object object, Member member, Object[] argumentValues) {
-		Object result = null;
-		try {
-			if (member instanceof Method) {
-				result = ((Method) member).invoke(object, argumentValues);
-			} else if (member instanceof Field) {
-				result = ((Field) member).get(object);
+	private MemberAccessor getCachedAccessor(Class<?> clazz, String attributeName) {
+		InlineCacheEntry[] entries = inlineCache;
+		for (InlineCacheEntry entry : entries) {
+			if (entry.clazz == clazz && entry.attributeName.equals(attributeName)) {
+				return entry.accessor;
 			}
+		}
+		return null;
+	}
 
-		} catch (IllegalAccessException e) {
-			throw new RuntimeException(e);
-		} catch (IllegalArgumentException e) {
-			throw new RuntimeException(e);
-		} catch (InvocationTargetException e) {
-			throw new RuntimeException(e);
+	/**
+	 * Adds an entry to the inline cache unless it is already full. Concurrent
+	 * additions may overwrite each other which only results in a later miss.
+	 *
+	 * @param clazz
+	 * @param attributeName
+	 * @param accessor
+	 */
+	private void addToInlineCache(Class<?> clazz, String attributeName, MemberAccessor accessor) {
+		InlineCacheEntry[] entries = inlineCache;
+		if (entries.length >= INLINE_CACHE_SIZE) {
+			return;
 		}
-		return result;
+		InlineCacheEntry[] copy = new InlineCacheEntry[entries.length + 1];
+		System.arraycopy(entries, 0, copy, 0, entries.length);
+		copy[entries.length] = new InlineCacheEntry(clazz, attributeName, accessor);
+		inlineCache = copy;
 	}
 
 	/**
@@ -255,155 +271,15 @@ public class GetAttributeExpression implements Expression<Object> {
 		return argumentValues;
 	}
 
-	/**
-	 * Performs the actual reflection to obtain a "Member" from a class.
-	 *
-	 * @param object
-	 * @param attributeName
-	 * @param parameterTypes
-	 * @return
-	 */
-	private Member reflect(Object object, String attributeName, Class<?>[] parameterTypes) {
-
-		Class<?> clazz = object.getClass();
-
-		Member result = null;
-
-		// capitalize first letter of attribute for the following attempts
-		String attributeCapitalized = Character.toUpperCase(attributeName.charAt(0)) + attributeName.substring(1);
-
-		// check get method
-		result = findMethod(clazz, "get" + attributeCapitalized, parameterTypes);
-
-		// check is method
-		if (result == null) {
-			result = findMethod(clazz, "is" + attributeCapitalized, parameterTypes);
-		}
-
-		// check has method
-		if (result == null) {
-			result = findMethod(clazz, "has" + attributeCapitalized, parameterTypes);
-		}
-
-		// check if attribute is a public method
-		if (result == null) {
-			result = findMethod(clazz, attributeName, parameterTypes);
-		}
-
-		// public field
-		if (result == null) {
-			try {
-				result = clazz.getField(attributeName);
-			} catch (NoSuchFieldException e) {
-
-			} catch (SecurityException e) {
-
-			}
-		}
-
-		if (result != null) {
-			((AccessibleObject) result).setAccessible(true);
-		}
-
-		return result;
-	}
-
-	/**
-	 * Finds an appropriate method by comparing if parameter types are
-	 * compatible. This is more relaxed than class.getMethod.
-	 *
-	 * @param clazz
-	 * @param name
-	 * @param requiredTypes
-	 * @return
-	 */
-	private Method findMethod(Class<?> clazz, String name, Class<?>[] requiredTypes) {
-		Method result = null;
-
-		Method[] candidates = clazz.getMethods();
-
-		for (Method candidate : candidates) {
-			if (!candidate.getName().equalsIgnoreCase(name)) {
-				continue;
-			}
-
-			Class<?>[] types = candidate.getParameterTypes();
-
-			if (types.length != requiredTypes.length) {
-				continue;
-			}
-
-			boolean compatibleTypes = true;
-			for (int i = 0; i < types.length; i++) {
-				if (requiredTypes[i] != null && !widen(types[i]).isAssignableFrom(requiredTypes[i])) {
-					compatibleTypes = false;
-					break;
-				}
-			}
-
-			if (compatibleTypes) {
-				result = candidate;
-				break;
-			}
-		}
-		return result;
-	}
-
-	/**
-	 * Performs a widening conversion (primitive to boxed type)
-	 *
-	 * @param clazz
-	 * @return
-	 */
-	private Class<?> widen(Class<?> clazz) {
-		Class<?> result = clazz;
-		if (clazz == int.class) {
-			result = Integer.class;
-		} else if (clazz == long.class) {
-			result = Long.class;
-		} else if (clazz == double.class) {
-			result = Double.class;
-		} else if (clazz == float.class) {
-			result = Float.class;
-		} else if (clazz == short.class) {
-			result = Short.class;
-		} else if (clazz == byte.class) {
-			result = Byte.class;
-		} else if (clazz == boolean.class) {
-			result = Boolean.class;
-		}
-		return result;
-	}
-
-	private class MemberCacheKey {
+	private static class InlineCacheEntry {
 		private final Class<?> clazz;
 		private final String attributeName;
+		private final MemberAccessor accessor;
 
-		private MemberCacheKey(Class<?> clazz, String attributeName) {
+		private InlineCacheEntry(Class<?> clazz, String attributeName, MemberAccessor accessor) {
 			this.clazz = clazz;
 			this.attributeName = attributeName;
-		}
-
-		@Override
-		public boolean equals(Object o) {
-			if (this == o)
-				return true;
-			if (o == null || getClass() != o.getClass())
-				return false;
-
-			MemberCacheKey that = (MemberCacheKey) o;
-
-			if (!clazz.equals(that.clazz))
-				return false;
-			return attributeName.equals(that.attributeName);
-
-		}
-
-		@Override
-		public int hashCode() {
-			int result = clazz.hashCode();
-			result = 31 * result + attributeName.hashCode();
-			return result;
+			this.accessor = accessor;
 		}
 	}
 
@@ -13,10 +13,11 @@ import com.mitchellbosecke.pebble.extension.NodeVisitor;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.Hierarchy;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+import com.mitchellbosecke.pebble.utils.BufferPool;
+import com.mitchellbosecke.pebble.utils.OutputLengthEstimator;
+import com.mitchellbosecke.pebble.utils.StringBuilderWriter;
 
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
 
 public class ParentFunctionExpression implements Expression<String> {
 
@@ -24,6 +25,12 @@ public class ParentFunctionExpression implements Expression<String> {
 
     private final int lineNumber;
 
+    /**
+     * Estimates the length of the output, used to size the buffer it is
+     * rendered into.
+     */
+    private final OutputLengthEstimator outputLength = new OutputLengthEstimator();
+
     public ParentFunctionExpression(String blockName, int lineNumber) {
         this.blockName = blockName;
         this.lineNumber = lineNumber;
@@ -31,7 +38,8 @@ public class ParentFunctionExpression implements Expression<String> {
 
     @Override
     public String evaluate(PebbleTemplateImpl self, EvaluationContext context) throws PebbleException {
-        Writer writer = new StringWriter();
+        BufferPool bufferPool = context.getBufferPool();
+        StringBuilderWriter writer = bufferPool.acquireWriter(outputLength.estimate());
         try {
             Hierarchy hierarchy = context.getHierarchy();
             if (hierarchy.getParent() == null) {
@@ -44,11 +52,14 @@ public class ParentFunctionExpression implements Expression<String> {
             hierarchy.ascend();
             parent.block(writer, context, blockName, true);
             hierarchy.descend();
+            outputLength.record(writer.length());
+            return writer.toString();
         } catch (IOException e) {
             throw new PebbleException(e, "Could not render block [" + blockName + "]", this.getLineNumber(),
                     self.getName());
+        } finally {
+            bufferPool.releaseWriter(writer);
         }
-        return writer.toString();
     }
 
     @Override
@@ -10,6 +10,9 @@ package com.mitchellbosecke.pebble.node.expression;
 
 import com.mitchellbosecke.pebble.error.AttributeNotFoundException;
 import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsTest;
+import com.mitchellbosecke.pebble.extension.Arguments;
+import com.mitchellbosecke.pebble.extension.ArgumentsTest;
 import com.mitchellbosecke.pebble.extension.Test;
 import com.mitchellbosecke.pebble.extension.core.DefinedTest;
 import com.mitchellbosecke.pebble.node.ArgumentsNode;
@@ -32,7 +35,10 @@ public class PositiveTestExpression extends BinaryExpression<Object> {
         if (cachedTest == null) {
             String testName = testInvocation.getTestName();
 
-            cachedTest = context.getExtensionRegistry().getTest(testInvocation.getTestName());
+            cachedTest = testInvocation.getTest();
+            if (cachedTest == null) {
+                cachedTest = context.getExtensionRegistry().getTest(testName);
+            }
 
             if (cachedTest == null) {
                 throw new PebbleException(null, String.format("Test [%s] does not exist.", testName),
@@ -41,24 +47,45 @@ public class PositiveTestExpression extends BinaryExpression<Object> {
         }
         Test test = cachedTest;
 
-        Map<String, Object> namedArguments = args.getArgumentMap(self, context, test);
+        Arguments arguments = null;
+        Map<String, Object> namedArguments = null;
+        if (usesArguments(test)) {
+            arguments = args.getArguments(self, context, test);
+        } else {
+            namedArguments = args.getArgumentMap(self, context, test);
+        }
 
         // This check is not nice, because we use instanceof. However this is
         // the only test which should not fail in strict mode, when the variable
         // is not set, because this method should exactly test this. Hence a
         // generic solution to allow other tests to reuse this feature make no
         // sense.
+        Object input;
         if (test instanceof DefinedTest) {
-            Object input = null;
             try {
                 input = getLeftExpression().evaluate(self, context);
             } catch (AttributeNotFoundException e) {
                 input = null;
             }
-            return test.apply(input, namedArguments);
         } else {
-            return test.apply(getLeftExpression().evaluate(self, context), namedArguments);
+            input = getLeftExpression().evaluate(self, context);
         }
 
+        if (arguments != null) {
+            return ((ArgumentsTest) test).apply(input, arguments);
+        }
+        return test.apply(input, namedArguments);
+
+    }
+
+    /**
+     * A test extending one of the core tests is called through the map based
+     * method if it overrides that method.
+     */
+    private static boolean usesArguments(Test test) {
+        if (test instanceof AbstractArgumentsTest) {
+            return !((AbstractArgumentsTest) test).isMapBased();
+        }
+        return test instanceof ArgumentsTest;
     }
 }
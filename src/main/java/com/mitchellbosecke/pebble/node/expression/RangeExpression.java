@@ -18,15 +18,25 @@ import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
  */
 public class RangeExpression extends BinaryExpression<Object> {
 
+    /**
+     * The invocation of the range function, created on the first evaluation.
+     */
+    private volatile FunctionOrMacroInvocationExpression function;
+
     @Override
     public Object evaluate(PebbleTemplateImpl self, EvaluationContext context) throws PebbleException {
-        List<PositionalArgumentNode> positionalArgs = new ArrayList<PositionalArgumentNode>();
-        positionalArgs.add(new PositionalArgumentNode(getLeftExpression()));
-        positionalArgs.add(new PositionalArgumentNode(getRightExpression()));
+        FunctionOrMacroInvocationExpression function = this.function;
+        if (function == null) {
+            List<PositionalArgumentNode> positionalArgs = new ArrayList<PositionalArgumentNode>();
+            positionalArgs.add(new PositionalArgumentNode(getLeftExpression()));
+            positionalArgs.add(new PositionalArgumentNode(getRightExpression()));
 
-        ArgumentsNode arguments = new ArgumentsNode(positionalArgs, null, this.getLineNumber());
-        FunctionOrMacroInvocationExpression function = new FunctionOrMacroInvocationExpression(
-                RangeFunction.FUNCTION_NAME, arguments, this.getLineNumber());
+            ArgumentsNode arguments = new ArgumentsNode(positionalArgs, null, this.getLineNumber());
+            function = new FunctionOrMacroInvocationExpression(RangeFunction.FUNCTION_NAME,
+                    context.getExtensionRegistry().getFunction(RangeFunction.FUNCTION_NAME), arguments,
+                    this.getLineNumber());
+            this.function = function;
+        }
 
         return function.evaluate(self, context);
     }
@@ -9,13 +9,14 @@
 package com.mitchellbosecke.pebble.node.expression;
 
 import java.io.IOException;
-import java.io.StringWriter;
-import java.io.Writer;
 
 import com.mitchellbosecke.pebble.error.PebbleException;
 import com.mitchellbosecke.pebble.node.RenderableNode;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+import com.mitchellbosecke.pebble.utils.BufferPool;
+import com.mitchellbosecke.pebble.utils.OutputLengthEstimator;
+import com.mitchellbosecke.pebble.utils.StringBuilderWriter;
 
 /**
  * This class wraps a {@link RenderableNode} into an expression. This is used by
@@ -31,6 +32,12 @@ public class RenderableNodeExpression extends UnaryExpression {
 
     private final int lineNumber;
 
+    /**
+     * Estimates the length of the output, used to size the buffer it is
+     * rendered into.
+     */
+    private final OutputLengthEstimator outputLength = new OutputLengthEstimator();
+
     public RenderableNodeExpression(RenderableNode node, int lineNumber) {
         this.node = node;
         this.lineNumber = lineNumber;
@@ -38,13 +45,17 @@ public class RenderableNodeExpression extends UnaryExpression {
 
     @Override
     public Object evaluate(PebbleTemplateImpl self, EvaluationContext context) throws PebbleException {
-        Writer writer = new StringWriter();
+        BufferPool bufferPool = context.getBufferPool();
+        StringBuilderWriter writer = bufferPool.acquireWriter(outputLength.estimate());
         try {
             node.render(self, writer, context);
+            outputLength.record(writer.length());
+            return writer.toString();
         } catch (IOException e) {
             throw new PebbleException(e, "Error occurred while rendering node", this.getLineNumber(), self.getName());
+        } finally {
+            bufferPool.releaseWriter(writer);
         }
-        return writer.toString();
     }
 
     @Override
@@ -15,7 +15,7 @@ import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
 
 public class TernaryExpression implements Expression<Object> {
 
-    private final Expression<Boolean> expression1;
+    private Expression<Boolean> expression1;
 
     private Expression<?> expression2;
 
@@ -56,6 +56,10 @@ public class TernaryExpression implements Expression<Object> {
         return expression3;
     }
 
+    public void setExpression1(Expression<Boolean> expression1) {
+        this.expression1 = expression1;
+    }
+
     public void setExpression3(Expression<?> expression3) {
         this.expression3 = expression3;
     }
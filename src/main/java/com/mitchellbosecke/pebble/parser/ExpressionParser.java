@@ -17,6 +17,11 @@ import java.util.Map;
 import java.util.Set;
 
 import com.mitchellbosecke.pebble.error.ParserException;
+import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.Function;
+import com.mitchellbosecke.pebble.extension.NamedArguments;
+import com.mitchellbosecke.pebble.extension.Test;
 import com.mitchellbosecke.pebble.lexer.Token;
 import com.mitchellbosecke.pebble.lexer.TokenStream;
 import com.mitchellbosecke.pebble.node.ArgumentsNode;
@@ -64,6 +69,12 @@ public class ExpressionParser {
 
 	private Map<String, UnaryOperator> unaryOperators;
 
+	private Map<String, Filter> filters;
+
+	private Map<String, Test> tests;
+
+	private Map<String, Function> functions;
+
 	/**
 	 * Constructor
 	 *
@@ -76,9 +87,37 @@ public class ExpressionParser {
 	 */
 	public ExpressionParser(Parser parser, Map<String, BinaryOperator> binaryOperators,
 			Map<String, UnaryOperator> unaryOperators) {
+		this(parser, binaryOperators, unaryOperators, null, null, null);
+	}
+
+	/**
+	 * Constructor. The filters, tests and functions are bound to the
+	 * expressions which invoke them so that they don't have to be looked up
+	 * every time the template is evaluated. Invoking a filter or test which
+	 * does not exist is reported as a parsing error.
+	 *
+	 * @param parser
+	 *            A reference to the main parser
+	 * @param binaryOperators
+	 *            All the binary operators
+	 * @param unaryOperators
+	 *            All the unary operators
+	 * @param filters
+	 *            All the filters, or null to look them up while evaluating
+	 * @param tests
+	 *            All the tests, or null to look them up while evaluating
+	 * @param functions
+	 *            All the functions, or null to look them up while evaluating
+	 */
+	public ExpressionParser(Parser parser, Map<String, BinaryOperator> binaryOperators,
+			Map<String, UnaryOperator> unaryOperators, Map<String, Filter> filters, Map<String, Test> tests,
+			Map<String, Function> functions) {
 		this.parser = parser;
 		this.binaryOperators = binaryOperators;
 		this.unaryOperators = unaryOperators;
+		this.filters = filters;
+		this.tests = tests;
+		this.functions = functions;
 	}
 
 	/**
@@ -287,7 +326,8 @@ public class ExpressionParser {
 
 				// variable name
 				else {
-					node = new ContextVariableExpression(token.getValue(), token.getLineNumber());
+					node = new ContextVariableExpression(token.getValue(), token.getLineNumber(),
+							ParserImpl.symbolTableOf(parser));
 				}
 			}
 			
@@ -385,7 +425,16 @@ public class ExpressionParser {
 			return new BlockFunctionExpression(args, node.getLineNumber());
 		}
 
-		return new FunctionOrMacroInvocationExpression(functionName, args, node.getLineNumber());
+		if (functions == null) {
+			return new FunctionOrMacroInvocationExpression(functionName, args, node.getLineNumber());
+		}
+
+		// anything which is not a function has to be a macro
+		Function function = functions.get(functionName);
+		if (function != null) {
+			bindArguments(args, function);
+		}
+		return new FunctionOrMacroInvocationExpression(functionName, function, args, node.getLineNumber());
 	}
 
 	public FilterInvocationExpression parseFilterInvocationExpression() throws ParserException {
@@ -399,7 +448,17 @@ public class ExpressionParser {
 			args = new ArgumentsNode(null, null, filterToken.getLineNumber());
 		}
 
-		return new FilterInvocationExpression(filterToken.getValue(), args, filterToken.getLineNumber());
+		if (filters == null) {
+			return new FilterInvocationExpression(filterToken.getValue(), args, filterToken.getLineNumber());
+		}
+
+		Filter filter = filters.get(filterToken.getValue());
+		if (filter == null) {
+			throw new ParserException(null, String.format("Filter [%s] does not exist.", filterToken.getValue()),
+					filterToken.getLineNumber(), stream.getFilename());
+		}
+		bindArguments(args, filter);
+		return new FilterInvocationExpression(filterToken.getValue(), filter, args, filterToken.getLineNumber());
 	}
 
 	private Expression<?> parseTestInvocationExpression() throws ParserException {
@@ -415,7 +474,30 @@ public class ExpressionParser {
 			args = new ArgumentsNode(null, null, testToken.getLineNumber());
 		}
 
-		return new TestInvocationExpression(lineNumber, testToken.getValue(), args);
+		if (tests == null) {
+			return new TestInvocationExpression(lineNumber, testToken.getValue(), args);
+		}
+
+		Test test = tests.get(testToken.getValue());
+		if (test == null) {
+			throw new ParserException(null, String.format("Test [%s] does not exist.", testToken.getValue()),
+					testToken.getLineNumber(), stream.getFilename());
+		}
+		bindArguments(args, test);
+		return new TestInvocationExpression(lineNumber, testToken.getValue(), test, args);
+	}
+
+	/**
+	 * Maps the arguments to the parameters of a filter, test or function
+	 * while parsing so that invalid arguments are reported right away.
+	 */
+	private void bindArguments(ArgumentsNode args, NamedArguments invocable) throws ParserException {
+		String filename = parser.getStream().getFilename();
+		try {
+			args.bind(invocable, filename);
+		} catch (PebbleException e) {
+			throw new ParserException(e, e.getPebbleMessage(), e.getLineNumber(), filename);
+		}
 	}
 
 	/**
@@ -515,7 +597,7 @@ public class ExpressionParser {
 				}
 				positionalArgs.add(new PositionalArgumentNode(argumentValue));
 			} else {
-				namedArgs.add(new NamedArgumentNode(argumentName, argumentValue));
+				namedArgs.add(new NamedArgumentNode(argumentName, argumentValue, ParserImpl.symbolTableOf(parser)));
 			}
 
 		}
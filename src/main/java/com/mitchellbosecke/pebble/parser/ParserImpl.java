@@ -9,12 +9,16 @@
 package com.mitchellbosecke.pebble.parser;
 
 import com.mitchellbosecke.pebble.error.ParserException;
+import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.Function;
+import com.mitchellbosecke.pebble.extension.Test;
 import com.mitchellbosecke.pebble.lexer.Token;
 import com.mitchellbosecke.pebble.lexer.TokenStream;
 import com.mitchellbosecke.pebble.node.*;
 import com.mitchellbosecke.pebble.node.expression.Expression;
 import com.mitchellbosecke.pebble.operator.BinaryOperator;
 import com.mitchellbosecke.pebble.operator.UnaryOperator;
+import com.mitchellbosecke.pebble.template.SymbolTable;
 import com.mitchellbosecke.pebble.tokenParser.TokenParser;
 
 import java.util.ArrayList;
@@ -39,11 +43,23 @@ public class ParserImpl implements Parser {
      */
     private final Map<String, TokenParser> tokenParsers;
 
+    /**
+     * Filters, tests and functions which are bound to the expressions that
+     * invoke them. If null they are looked up when the template is evaluated.
+     */
+    private final Map<String, Filter> filters;
+
+    private final Map<String, Test> tests;
+
+    private final Map<String, Function> functions;
+
     /**
      * An expression parser.
      */
     private ExpressionParser expressionParser;
 
+    private final SymbolTable symbolTable;
+
     /**
      * The TokenStream that we are converting into an Abstract Syntax Tree.
      */
@@ -68,16 +84,54 @@ public class ParserImpl implements Parser {
      */
     public ParserImpl(Map<String, UnaryOperator> unaryOperators, Map<String, BinaryOperator> binaryOperators,
                       Map<String, TokenParser> tokenParsers) {
+        this(unaryOperators, binaryOperators, tokenParsers, null, null, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param binaryOperators A map of binary operators
+     * @param unaryOperators  A map of unary operators
+     * @param tokenParsers    A map of token parsers
+     * @param filters         A map of filters
+     * @param tests           A map of tests
+     * @param functions       A map of functions
+     */
+    public ParserImpl(Map<String, UnaryOperator> unaryOperators, Map<String, BinaryOperator> binaryOperators,
+                      Map<String, TokenParser> tokenParsers, Map<String, Filter> filters, Map<String, Test> tests,
+                      Map<String, Function> functions) {
+        this(unaryOperators, binaryOperators, tokenParsers, filters, tests, functions, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param binaryOperators A map of binary operators
+     * @param unaryOperators  A map of unary operators
+     * @param tokenParsers    A map of token parsers
+     * @param filters         A map of filters
+     * @param tests           A map of tests
+     * @param functions       A map of functions
+     * @param symbolTable     The symbol table of the engine, may be null
+     */
+    public ParserImpl(Map<String, UnaryOperator> unaryOperators, Map<String, BinaryOperator> binaryOperators,
+                      Map<String, TokenParser> tokenParsers, Map<String, Filter> filters, Map<String, Test> tests,
+                      Map<String, Function> functions, SymbolTable symbolTable) {
         this.binaryOperators = binaryOperators;
         this.unaryOperators = unaryOperators;
         this.tokenParsers = tokenParsers;
+        this.filters = filters;
+        this.tests = tests;
+        this.functions = functions;
+        this.symbolTable = symbolTable;
     }
 
     @Override
     public RootNode parse(TokenStream stream) throws ParserException {
 
         // expression parser
-        this.expressionParser = new ExpressionParser(this, binaryOperators, unaryOperators);
+        this.expressionParser = new ExpressionParser(this, binaryOperators, unaryOperators, filters, tests,
+                functions);
 
         this.stream = stream;
 
@@ -227,4 +281,27 @@ public class ParserImpl implements Parser {
     public void pushBlockStack(String blockName) {
         blockStack.push(blockName);
     }
+
+    /**
+     * Provides the symbol table which the names of the variables are resolved
+     * with while parsing.
+     *
+     * @return The symbol table or null if variables are only looked up by
+     * their name
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    /**
+     * Provides the symbol table of a parser. Parsers other than
+     * {@link ParserImpl} don't have one, so that the variables of the nodes
+     * they create are looked up by their name.
+     *
+     * @param parser The parser
+     * @return The symbol table or null
+     */
+    public static SymbolTable symbolTableOf(Parser parser) {
+        return parser instanceof ParserImpl ? ((ParserImpl) parser).getSymbolTable() : null;
+    }
 }
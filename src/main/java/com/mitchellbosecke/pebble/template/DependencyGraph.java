@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.template;
+
+import com.mitchellbosecke.pebble.extension.AbstractNodeVisitor;
+import com.mitchellbosecke.pebble.node.ExtendsNode;
+import com.mitchellbosecke.pebble.node.ImportNode;
+import com.mitchellbosecke.pebble.node.IncludeNode;
+import com.mitchellbosecke.pebble.node.RootNode;
+import com.mitchellbosecke.pebble.node.expression.Expression;
+import com.mitchellbosecke.pebble.node.expression.LiteralStringExpression;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of which templates extend, include or import which other
+ * templates so that a changed template can be evicted from the template cache
+ * together with all the templates depending on it.
+ * <p>
+ * Only templates whose names are literal strings are known; a template which
+ * is chosen by an expression at evaluation time can't be found out when
+ * compiling. Templates without dependencies are not recorded, and a template
+ * has to be removed once it leaves the template cache so that the graph only
+ * grows with the cache.
+ *
+ * @author Mitchell
+ */
+public class DependencyGraph {
+
+    /**
+     * The names of the templates each template depends on.
+     */
+    private final Map<String, Set<String>> dependencies = new HashMap<String, Set<String>>();
+
+    /**
+     * The names of the templates depending on each template.
+     */
+    private final Map<String, Set<String>> dependents = new HashMap<String, Set<String>>();
+
+    /**
+     * Records the dependencies of a compiled template, replacing the ones of
+     * a previous compilation.
+     *
+     * @param template The template
+     * @param root     The root node of the template
+     */
+    public void addTemplate(final PebbleTemplateImpl template, RootNode root) {
+        final Set<String> names = new HashSet<String>();
+        root.accept(new AbstractNodeVisitor(template) {
+
+            @Override
+            public void visit(ExtendsNode node) {
+                add(node.getParentExpression());
+                super.visit(node);
+            }
+
+            @Override
+            public void visit(ImportNode node) {
+                add(node.getImportExpression());
+                super.visit(node);
+            }
+
+            @Override
+            public void visit(IncludeNode node) {
+                add(node.getIncludeExpression());
+                super.visit(node);
+            }
+
+            private void add(Expression<?> expression) {
+                if (expression instanceof LiteralStringExpression) {
+                    names.add(template.resolveRelativePath(((LiteralStringExpression) expression).getValue()));
+                }
+            }
+        });
+        setDependencies(template.getName(), names);
+    }
+
+    /**
+     * Forgets the dependencies of a template which is no longer cached. The
+     * templates depending on it are still known.
+     *
+     * @param name The name of the template
+     */
+    public void removeTemplate(String name) {
+        setDependencies(name, Collections.<String>emptySet());
+    }
+
+    private synchronized void setDependencies(String name, Set<String> names) {
+        Set<String> previous = names.isEmpty() ? dependencies.remove(name) : dependencies.put(name, names);
+        if (previous != null) {
+            for (String dependency : previous) {
+                Set<String> set = dependents.get(dependency);
+                set.remove(name);
+                if (set.isEmpty()) {
+                    dependents.remove(dependency);
+                }
+            }
+        }
+        for (String dependency : names) {
+            Set<String> set = dependents.get(dependency);
+            if (set == null) {
+                set = new HashSet<String>();
+                dependents.put(dependency, set);
+            }
+            set.add(name);
+        }
+    }
+
+    /**
+     * Returns the names of the templates a template depends on directly.
+     *
+     * @param name The name of the template
+     * @return The names of its dependencies
+     */
+    public synchronized Set<String> getDependencies(String name) {
+        Set<String> result = dependencies.get(name);
+        return result == null ? Collections.<String>emptySet() : new HashSet<String>(result);
+    }
+
+    /**
+     * Returns the name of a template together with the names of all the
+     * templates which depend on it, directly or through other templates.
+     *
+     * @param name The name of the template
+     * @return The names of the template and its dependents
+     */
+    public synchronized Set<String> getDependentsOf(String name) {
+        Set<String> result = new HashSet<String>();
+        Deque<String> pending = new ArrayDeque<String>();
+        pending.add(name);
+        while (!pending.isEmpty()) {
+            String current = pending.poll();
+            if (result.add(current)) {
+                Set<String> set = dependents.get(current);
+                if (set != null) {
+                    pending.addAll(set);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -9,8 +9,10 @@
 package com.mitchellbosecke.pebble.template;
 
 import com.google.common.cache.Cache;
+import com.mitchellbosecke.pebble.attributes.MemberAccessorRegistry;
 import com.mitchellbosecke.pebble.cache.BaseTagCacheKey;
 import com.mitchellbosecke.pebble.extension.ExtensionRegistry;
+import com.mitchellbosecke.pebble.utils.BufferPool;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -60,6 +62,18 @@ public class EvaluationContext {
      */
     private final Cache<BaseTagCacheKey, Object> tagCache;
 
+    /**
+     * The methods and fields resolved for attributes, shared by all templates
+     * of the engine.
+     */
+    private final MemberAccessorRegistry memberAccessorRegistry;
+
+    /**
+     * The pool of buffers used for intermediate output, shared by all
+     * templates of the engine.
+     */
+    private final BufferPool bufferPool;
+
     /**
      * The user-provided ExecutorService (can be null).
      */
@@ -81,11 +95,14 @@ public class EvaluationContext {
      * @param scopeChain        The scope chain
      * @param hierarchy         The inheritance chain
      * @param tagCache          The cache used by the "cache" tag
+     * @param memberAccessorRegistry The registry of resolved attribute members
+     * @param bufferPool        The pool of buffers for intermediate output
      */
     public EvaluationContext(PebbleTemplateImpl self, boolean strictVariables, Locale locale,
                              ExtensionRegistry extensionRegistry, Cache<BaseTagCacheKey, Object> tagCache,
-                             ExecutorService executorService, List<PebbleTemplateImpl> importedTemplates, ScopeChain scopeChain,
-                             Hierarchy hierarchy) {
+                             MemberAccessorRegistry memberAccessorRegistry, BufferPool bufferPool,
+                             ExecutorService executorService,
+                             List<PebbleTemplateImpl> importedTemplates, ScopeChain scopeChain, Hierarchy hierarchy) {
 
         if (hierarchy == null) {
             hierarchy = new Hierarchy(self);
@@ -95,6 +112,8 @@ public class EvaluationContext {
         this.locale = locale;
         this.extensionRegistry = extensionRegistry;
         this.tagCache = tagCache;
+        this.memberAccessorRegistry = memberAccessorRegistry;
+        this.bufferPool = bufferPool;
         this.executorService = executorService;
         this.importedTemplates = importedTemplates;
         this.scopeChain = scopeChain;
@@ -110,7 +129,7 @@ public class EvaluationContext {
      */
     public EvaluationContext shallowCopyWithoutInheritanceChain(PebbleTemplateImpl self) {
         EvaluationContext result = new EvaluationContext(self, strictVariables, locale, extensionRegistry, tagCache,
-                executorService, importedTemplates, scopeChain, null);
+                memberAccessorRegistry, bufferPool, executorService, importedTemplates, scopeChain, null);
         return result;
     }
 
@@ -124,7 +143,7 @@ public class EvaluationContext {
      */
     public EvaluationContext threadSafeCopy(PebbleTemplateImpl self) {
         EvaluationContext result = new EvaluationContext(self, strictVariables, locale, extensionRegistry, tagCache,
-                executorService, new ArrayList<PebbleTemplateImpl>(importedTemplates), scopeChain.deepCopy(), hierarchy);
+                memberAccessorRegistry, bufferPool, executorService, new ArrayList<PebbleTemplateImpl>(importedTemplates), scopeChain.deepCopy(), hierarchy);
         return result;
     }
 
@@ -182,6 +201,24 @@ public class EvaluationContext {
         return tagCache;
     }
 
+    /**
+     * Returns the registry used to resolve attributes to methods and fields
+     *
+     * @return The member accessor registry
+     */
+    public MemberAccessorRegistry getMemberAccessorRegistry() {
+        return memberAccessorRegistry;
+    }
+
+    /**
+     * Returns the pool of buffers that intermediate output is rendered into
+     *
+     * @return The buffer pool
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
     /**
      * Returns the scope chain data structure that allows variables to be added/removed from the current scope
      * and retrieved from the nearest visible scopes.
@@ -8,9 +8,11 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.template;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.mitchellbosecke.pebble.error.PebbleException;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.util.Locale;
 import java.util.Map;
@@ -63,6 +65,105 @@ public interface PebbleTemplate {
      */
     void evaluate(Writer writer, Map<String, Object> context, Locale locale) throws PebbleException, IOException;
 
+    /**
+     * Evaluate the template without any provided variables and write the
+     * results encoded as UTF-8. The static text of the template is encoded
+     * only once, when the template is compiled. This will use the default
+     * locale provided by the {@link com.mitchellbosecke.pebble.PebbleEngine}.
+     *
+     * @param out The results of the evaluation are written to this stream.
+     * @throws PebbleException An exception with the evaluation of the template
+     * @throws IOException     An IO exception during the evaluation
+     */
+    void evaluate(OutputStream out) throws PebbleException, IOException;
+
+    /**
+     * Evaluate the template with a particular locale but without any provided
+     * variables and write the results encoded as UTF-8.
+     *
+     * @param out    The results of the evaluation are written to this stream.
+     * @param locale The locale used during the evaluation of the template.
+     * @throws PebbleException An exception with the evaluation of the template
+     * @throws IOException     An IO exception during the evaluation
+     */
+    void evaluate(OutputStream out, Locale locale) throws PebbleException, IOException;
+
+    /**
+     * Evaluate the template with a set of variables and the default locale
+     * provided by the {@link com.mitchellbosecke.pebble.PebbleEngine} and
+     * write the results encoded as UTF-8.
+     *
+     * @param out     The results of the evaluation are written to this stream.
+     * @param context The variables used during the evaluation of the template.
+     * @throws PebbleException An exception with the evaluation of the template
+     * @throws IOException     An IO exception during the evaluation
+     */
+    void evaluate(OutputStream out, Map<String, Object> context) throws PebbleException, IOException;
+
+    /**
+     * Evaluate the template with a particular locale and a set of variables
+     * and write the results encoded as UTF-8.
+     *
+     * @param out     The results of the evaluation are written to this stream.
+     * @param context The variables used during the evaluation of the template.
+     * @param locale  The locale used during the evaluation of the template.
+     * @throws PebbleException An exception with the evaluation of the template
+     * @throws IOException     An IO exception during the evaluation
+     */
+    void evaluate(OutputStream out, Map<String, Object> context, Locale locale) throws PebbleException,
+            IOException;
+
+    /**
+     * Evaluate the template without any provided variables and without
+     * waiting for its "parallel" tags. The template itself is rendered by the
+     * calling thread, the output of the parallel tags is written by the
+     * threads of the {@link java.util.concurrent.ExecutorService} once it is
+     * ready. Nothing else may be written to the writer until the returned
+     * future is done. This will use the default locale provided by the
+     * {@link com.mitchellbosecke.pebble.PebbleEngine}.
+     *
+     * @param writer The results of the evaluation are written to this writer.
+     * @return A future which is done once all the results were written and
+     * the writer was flushed, or which fails with the
+     * {@link PebbleException} or {@link IOException} of the evaluation
+     */
+    ListenableFuture<Void> evaluateAsync(Writer writer);
+
+    /**
+     * Evaluate the template with a particular locale but without any provided
+     * variables and without waiting for its "parallel" tags.
+     *
+     * @param writer The results of the evaluation are written to this writer.
+     * @param locale The locale used during the evaluation of the template.
+     * @return A future which is done once all the results were written
+     * @see #evaluateAsync(Writer)
+     */
+    ListenableFuture<Void> evaluateAsync(Writer writer, Locale locale);
+
+    /**
+     * Evaluate the template with a set of variables and the default locale
+     * provided by the {@link com.mitchellbosecke.pebble.PebbleEngine} without
+     * waiting for its "parallel" tags.
+     *
+     * @param writer  The results of the evaluation are written to this writer.
+     * @param context The variables used during the evaluation of the template.
+     * @return A future which is done once all the results were written
+     * @see #evaluateAsync(Writer)
+     */
+    ListenableFuture<Void> evaluateAsync(Writer writer, Map<String, Object> context);
+
+    /**
+     * Evaluate the template with a particular locale and a set of variables
+     * without waiting for its "parallel" tags.
+     *
+     * @param writer  The results of the evaluation are written to this writer.
+     * @param context The variables used during the evaluation of the template.
+     * @param locale  The locale used during the evaluation of the template.
+     * @return A future which is done once all the results were written
+     * @see #evaluateAsync(Writer)
+     */
+    ListenableFuture<Void> evaluateAsync(Writer writer, Map<String, Object> context, Locale locale);
+
     /**
      * Returns the name of the template
      *
@@ -70,4 +171,16 @@ public interface PebbleTemplate {
      */
     String getName();
 
+    /**
+     * Returns the expected length of the output of this template, which can be
+     * used to size the buffer the template is evaluated into. It is the 90th
+     * percentile of the recent outputs that were written into a
+     * {@link java.io.StringWriter}, a
+     * {@link com.mitchellbosecke.pebble.utils.StringBuilderWriter} or an output
+     * stream; the latter are measured in bytes instead of characters.
+     *
+     * @return The expected length or zero if it is not known yet
+     */
+    int getOutputLengthEstimate();
+
 }
@@ -8,14 +8,22 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.template;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.mitchellbosecke.pebble.PebbleEngine;
 import com.mitchellbosecke.pebble.error.PebbleException;
 import com.mitchellbosecke.pebble.extension.escaper.SafeString;
 import com.mitchellbosecke.pebble.node.ArgumentsNode;
 import com.mitchellbosecke.pebble.node.RootNode;
+import com.mitchellbosecke.pebble.utils.BufferPool;
 import com.mitchellbosecke.pebble.utils.FutureWriter;
+import com.mitchellbosecke.pebble.utils.OutputLengthEstimator;
+import com.mitchellbosecke.pebble.utils.StringBuilderWriter;
+import com.mitchellbosecke.pebble.utils.Utf8Writer;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -57,6 +65,17 @@ public class PebbleTemplateImpl implements PebbleTemplate {
      */
     private final String name;
 
+    /**
+     * Estimates the length of the output of this template.
+     */
+    private final OutputLengthEstimator outputLength = new OutputLengthEstimator();
+
+    /**
+     * The fingerprint of the source this template was compiled from, may be
+     * null.
+     */
+    private final Object sourceFingerprint;
+
     /**
      * Constructor
      *
@@ -65,31 +84,176 @@ public class PebbleTemplateImpl implements PebbleTemplate {
      * @param name   The name of the template
      */
     public PebbleTemplateImpl(PebbleEngine engine, RootNode root, String name) {
+        this(engine, root, name, null);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param engine            The pebble engine used to construct this template
+     * @param root              The root not to evaluate
+     * @param name              The name of the template
+     * @param sourceFingerprint The fingerprint of the source, see
+     *                          {@link com.mitchellbosecke.pebble.loader.ReloadableLoader}
+     */
+    public PebbleTemplateImpl(PebbleEngine engine, RootNode root, String name, Object sourceFingerprint) {
         this.engine = engine;
         this.rootNode = root;
         this.name = name;
+        this.sourceFingerprint = sourceFingerprint;
     }
 
     public void evaluate(Writer writer) throws PebbleException, IOException {
         EvaluationContext context = initContext(null);
-        evaluate(writer, context);
+        render(writer, context);
     }
 
     public void evaluate(Writer writer, Locale locale) throws PebbleException, IOException {
         EvaluationContext context = initContext(locale);
-        evaluate(writer, context);
+        render(writer, context);
     }
 
     public void evaluate(Writer writer, Map<String, Object> map) throws PebbleException, IOException {
         EvaluationContext context = initContext(null);
         context.getScopeChain().pushScope(map);
-        evaluate(writer, context);
+        render(writer, context);
     }
 
     public void evaluate(Writer writer, Map<String, Object> map, Locale locale) throws PebbleException, IOException {
         EvaluationContext context = initContext(locale);
         context.getScopeChain().pushScope(map);
+        render(writer, context);
+    }
+
+    public void evaluate(OutputStream out) throws PebbleException, IOException {
+        EvaluationContext context = initContext(null);
+        evaluate(out, context);
+    }
+
+    public void evaluate(OutputStream out, Locale locale) throws PebbleException, IOException {
+        EvaluationContext context = initContext(locale);
+        evaluate(out, context);
+    }
+
+    public void evaluate(OutputStream out, Map<String, Object> map) throws PebbleException, IOException {
+        EvaluationContext context = initContext(null);
+        context.getScopeChain().pushScope(map);
+        evaluate(out, context);
+    }
+
+    public void evaluate(OutputStream out, Map<String, Object> map, Locale locale) throws PebbleException,
+            IOException {
+        EvaluationContext context = initContext(locale);
+        context.getScopeChain().pushScope(map);
+        evaluate(out, context);
+    }
+
+    /**
+     * Evaluates the template into an output stream through a UTF-8 writer
+     * whose buffer is borrowed from the engine's buffer pool.
+     *
+     * @param out     The output stream
+     * @param context The evaluation context
+     * @throws PebbleException Thrown if any sort of template error occurs
+     * @throws IOException     Thrown from the output stream
+     */
+    private void evaluate(OutputStream out, EvaluationContext context) throws PebbleException, IOException {
+        BufferPool bufferPool = context.getBufferPool();
+        byte[] buffer = bufferPool.acquireByteBuffer();
+        try {
+            render(new Utf8Writer(out, buffer), context);
+        } finally {
+            bufferPool.releaseByteBuffer(buffer);
+        }
+    }
+
+    public ListenableFuture<Void> evaluateAsync(Writer writer) {
+        EvaluationContext context = initContext(null);
+        return evaluateAsync(writer, context);
+    }
+
+    public ListenableFuture<Void> evaluateAsync(Writer writer, Locale locale) {
+        EvaluationContext context = initContext(locale);
+        return evaluateAsync(writer, context);
+    }
+
+    public ListenableFuture<Void> evaluateAsync(Writer writer, Map<String, Object> map) {
+        EvaluationContext context = initContext(null);
+        context.getScopeChain().pushScope(map);
+        return evaluateAsync(writer, context);
+    }
+
+    public ListenableFuture<Void> evaluateAsync(Writer writer, Map<String, Object> map, Locale locale) {
+        EvaluationContext context = initContext(locale);
+        context.getScopeChain().pushScope(map);
+        return evaluateAsync(writer, context);
+    }
+
+    /**
+     * Evaluates the template but leaves writing the output of the "parallel"
+     * tags to the threads which render them.
+     *
+     * @param writer  The writer used to write the final output of the template
+     * @param context The evaluation context
+     * @return A future which is done once all the output was written
+     */
+    private ListenableFuture<Void> evaluateAsync(Writer writer, EvaluationContext context) {
+        try {
+            if (context.getExecutorService() == null) {
+                render(writer, context);
+                return Futures.immediateFuture(null);
+            }
+            FutureWriter futureWriter = new FutureWriter(writer);
+            renderTemplate(futureWriter, context);
+            return futureWriter.flushAsync();
+        } catch (Exception e) {
+            return Futures.immediateFailedFuture(e);
+        }
+    }
+
+    /**
+     * Evaluates the template for a caller and keeps track of the length of
+     * the output if the writer tells it for free. A buffer the caller
+     * evaluates into is grown to the expected length up front.
+     *
+     * @param writer  The writer used to write the final output of the template
+     * @param context The evaluation context
+     * @throws PebbleException Thrown if any sort of template error occurs
+     * @throws IOException     Thrown from the writer object
+     */
+    private void render(Writer writer, EvaluationContext context) throws PebbleException, IOException {
+        long start = getWrittenLength(writer);
+        if (start >= 0) {
+            int expected = (int) start + outputLength.estimate();
+            if (writer instanceof StringBuilderWriter) {
+                ((StringBuilderWriter) writer).ensureCapacity(expected);
+            } else if (writer instanceof StringWriter) {
+                ((StringWriter) writer).getBuffer().ensureCapacity(expected);
+            }
+        }
+
         evaluate(writer, context);
+
+        if (start >= 0) {
+            outputLength.record((int) (getWrittenLength(writer) - start));
+        }
+    }
+
+    /**
+     * Returns how much was written to a writer so far.
+     *
+     * @param writer The writer
+     * @return The written length or -1 if the writer can't tell
+     */
+    private static long getWrittenLength(Writer writer) {
+        if (writer instanceof StringBuilderWriter) {
+            return ((StringBuilderWriter) writer).length();
+        } else if (writer instanceof StringWriter) {
+            return ((StringWriter) writer).getBuffer().length();
+        } else if (writer instanceof Utf8Writer) {
+            return ((Utf8Writer) writer).getByteCount();
+        }
+        return -1;
     }
 
     /**
@@ -105,6 +269,20 @@ public class PebbleTemplateImpl implements PebbleTemplate {
         if (context.getExecutorService() != null) {
             writer = new FutureWriter(writer);
         }
+        renderTemplate(writer, context);
+        writer.flush();
+    }
+
+    /**
+     * Renders the template and the templates it extends, without flushing
+     * the writer.
+     *
+     * @param writer  The writer used to write the final output of the template
+     * @param context The evaluation context
+     * @throws PebbleException Thrown if any sort of template error occurs
+     * @throws IOException     Thrown from the writer object
+     */
+    private void renderTemplate(Writer writer, EvaluationContext context) throws PebbleException, IOException {
         rootNode.render(this, writer, context);
 
         /*
@@ -116,9 +294,8 @@ public class PebbleTemplateImpl implements PebbleTemplate {
         if (context.getHierarchy().getParent() != null) {
             PebbleTemplateImpl parent = context.getHierarchy().getParent();
             context.getHierarchy().ascend();
-            parent.evaluate(writer, context);
+            parent.renderTemplate(writer, context);
         }
-        writer.flush();
     }
 
     /**
@@ -131,16 +308,17 @@ public class PebbleTemplateImpl implements PebbleTemplate {
         locale = locale == null ? engine.getDefaultLocale() : locale;
 
         // globals
-        Map<String, Object> globals = new HashMap<String, Object>();
-        globals.put("locale", locale);
-        globals.put("template", this);
-        ScopeChain scopeChain = new ScopeChain(globals);
+        ScopeChain scopeChain = new ScopeChain(engine.getSymbolTable());
+        scopeChain.pushScope();
+        scopeChain.put(SymbolTable.LOCALE_SYMBOL, "locale", locale);
+        scopeChain.put(SymbolTable.TEMPLATE_SYMBOL, "template", this);
 
         // global vars provided from extensions
         scopeChain.pushScope(engine.getExtensionRegistry().getGlobalVariables());
 
         EvaluationContext context = new EvaluationContext(this, engine.isStrictVariables(), locale,
-                engine.getExtensionRegistry(), engine.getTagCache(), engine.getExecutorService(),
+                engine.getExtensionRegistry(), engine.getTagCache(), engine.getMemberAccessorRegistry(),
+                engine.getBufferPool(), engine.getListeningExecutorService(),
                 new ArrayList<PebbleTemplateImpl>(), scopeChain, null);
         return context;
     }
@@ -177,7 +355,15 @@ public class PebbleTemplateImpl implements PebbleTemplate {
         for (Entry<?, ?> entry : additionalVariables.entrySet()) {
             scopeChain.put((String) entry.getKey(), entry.getValue());
         }
-        template.evaluate(writer, newContext);
+        if (writer instanceof FutureWriter || context.getExecutorService() == null) {
+            /*
+             * The "parallel" tags of the included template are queued on the
+             * writer of this template instead of being waited for.
+             */
+            template.renderTemplate(writer, newContext);
+        } else {
+            template.evaluate(writer, newContext);
+        }
         scopeChain.popScope();
     }
 
@@ -332,6 +518,29 @@ public class PebbleTemplateImpl implements PebbleTemplate {
                 .pushAncestor((PebbleTemplateImpl) engine.getTemplate(this.resolveRelativePath(parentName)));
     }
 
+    /**
+     * Returns the 90th percentile of the lengths of the recent outputs of
+     * this template, measured in characters or, for output streams, in bytes.
+     *
+     * @return The expected length or zero if no output was measured yet
+     */
+    @Override
+    public int getOutputLengthEstimate() {
+        return outputLength.estimate();
+    }
+
+    /**
+     * Returns the fingerprint which the loader reported for the source of
+     * this template when it was compiled. The engine compares it to the
+     * current fingerprint to find out whether the template has to be compiled
+     * again.
+     *
+     * @return The fingerprint or null if the loader does not provide one
+     */
+    public Object getSourceFingerprint() {
+        return sourceFingerprint;
+    }
+
     /**
      * Returns the template name
      *
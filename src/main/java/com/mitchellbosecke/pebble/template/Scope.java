@@ -8,6 +8,9 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.template;
 
+import com.mitchellbosecke.pebble.node.LoopContext;
+
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -20,27 +23,120 @@ import java.util.Map;
  */
 public class Scope {
 
+    /**
+     * Must be a power of two.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * Used by scopes which are created without the symbol table of an engine.
+     * Only names are looked up in it, so it never grows.
+     */
+    private static final SymbolTable DEFAULT_SYMBOL_TABLE = new SymbolTable();
+
+    private final SymbolTable symbolTable;
+
     /**
      * A "local" scope ensures that
      * the search for a particular variable will end at this scope
      * whether or not it was found.
      */
-    private final boolean isLocal;
+    private boolean isLocal;
+
+    /**
+     * The map of variables provided by the user, may be null. Variables
+     * set by the template are never written to this map.
+     */
+    private Map<String, Object> backingMap;
+
+    /**
+     * Open addressing table of the variables set by the template at this
+     * scope. A slot holds the id of the variable plus one, see
+     * {@link SymbolTable}, or zero if it is empty.
+     */
+    private int[] keys;
+
+    /**
+     * The values of the variables set by the template, at the same position
+     * as their key in {@link #keys}.
+     */
+    private Object[] values;
+
+    private int size;
 
     /**
-     * The map of variables known at this scope
+     * The variables set at this scope whose name has no id in the symbol
+     * table, may be null. A name is never in both this map and {@link #keys}.
      */
-    private final Map<String, Object> backingMap;
+    private Map<String, Object> namedValues;
+
+    /**
+     * Whether {@link #keys} and {@link #values} may also be used by a copy of
+     * this scope. Shared tables are never modified, they are copied by the
+     * first write instead.
+     */
+    private boolean shared;
+
+    /**
+     * Whether a {@link LoopContext} was set at this scope. It is updated in
+     * place by the for loop so it can't be shared with a copy.
+     */
+    private boolean hasLoopContext;
 
     /**
      * Constructor
      *
-     * @param backingMap The backing map of variables
+     * @param backingMap The backing map of variables, may be null
      * @param isLocal    Whether this scope is local or not
      */
     public Scope(Map<String, Object> backingMap, boolean isLocal) {
-        this.backingMap = backingMap == null ? new HashMap<String, Object>() : backingMap;
+        this(backingMap, isLocal, DEFAULT_SYMBOL_TABLE);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param backingMap  The backing map of variables, may be null
+     * @param isLocal     Whether this scope is local or not
+     * @param symbolTable The symbol table of the engine
+     */
+    public Scope(Map<String, Object> backingMap, boolean isLocal, SymbolTable symbolTable) {
+        this.backingMap = backingMap;
         this.isLocal = isLocal;
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Prepares a popped scope to be pushed again. The frame of template
+     * variables keeps its capacity.
+     *
+     * @param backingMap The backing map of variables, may be null
+     * @param isLocal    Whether this scope is local or not
+     */
+    void reset(Map<String, Object> backingMap, boolean isLocal) {
+        this.backingMap = backingMap;
+        this.isLocal = isLocal;
+    }
+
+    /**
+     * Removes all variables so that the scope does not keep any references
+     * while it waits to be reused.
+     */
+    void clear() {
+        if (size > 0) {
+            if (shared) {
+                keys = null;
+                values = null;
+                shared = false;
+            } else {
+                Arrays.fill(keys, 0);
+                Arrays.fill(values, null);
+            }
+            size = 0;
+        }
+        hasLoopContext = false;
+        namedValues = null;
+        backingMap = null;
     }
 
     /**
@@ -49,19 +145,38 @@ public class Scope {
      * This is used for the parallel tag  because every new thread should have a
      * "snapshot" of the scopes, i.e. one thread should not affect rendering output of another.
      * <p>
-     * It will construct a new collection but
-     * it will contain references to all of the original variables therefore it is not
-     * a deep copy. This is why it is import for the user to use thread-safe variables
-     * when using the parallel tag.
+     * The copy shares the variables with this scope until either of them sets
+     * a variable, only then the variables are copied. It contains references
+     * to all of the original variables therefore it is not a deep copy. This is
+     * why it is import for the user to use thread-safe variables when using the
+     * parallel tag.
      *
      * @return A copy of the scope
      */
     public Scope shallowCopy() {
+        Scope copy = new Scope(backingMap, isLocal, symbolTable);
+        if (namedValues != null) {
+            copy.namedValues = new HashMap<String, Object>(namedValues);
+        }
+        if (size > 0) {
+            copy.keys = keys;
+            copy.values = values;
+            copy.size = size;
+            copy.shared = true;
+            shared = true;
 
-        Map<String, Object> backingMapCopy = new HashMap<String, Object>();
-        backingMapCopy.putAll(backingMap);
-
-        return new Scope(backingMapCopy, isLocal);
+            // the loop variable is updated in place by the for loop
+            if (hasLoopContext) {
+                copy.values = values.clone();
+                copy.hasLoopContext = true;
+                for (int i = 0; i < copy.values.length; i++) {
+                    if (copy.values[i] instanceof LoopContext) {
+                        copy.values[i] = ((LoopContext) copy.values[i]).snapshot();
+                    }
+                }
+            }
+        }
+        return copy;
     }
 
     /**
@@ -80,7 +195,53 @@ public class Scope {
      * @param value The value of the variable
      */
     public void put(String key, Object value) {
-        backingMap.put(key, value);
+        put(symbolTable.lookup(key), key, value);
+    }
+
+    /**
+     * Adds a variable to this scope
+     *
+     * @param symbol The id of the variable or a negative number if it is not
+     *               known
+     * @param key    The name of the variable
+     * @param value  The value of the variable
+     */
+    public void put(int symbol, String key, Object value) {
+        if (symbol < 0) {
+            symbol = symbolTable.lookup(key);
+            if (symbol < 0) {
+                if (namedValues == null) {
+                    namedValues = new HashMap<String, Object>();
+                }
+                namedValues.put(key, value);
+                return;
+            }
+        }
+        if (namedValues != null) {
+            // the name got an id since it was set
+            namedValues.remove(key);
+        }
+        if (keys == null) {
+            keys = new int[INITIAL_CAPACITY];
+            values = new Object[INITIAL_CAPACITY];
+        } else if (shared) {
+            keys = keys.clone();
+            values = values.clone();
+            shared = false;
+        }
+        if (value instanceof LoopContext) {
+            hasLoopContext = true;
+        }
+        int index = slot(keys, symbol);
+        if (keys[index] == 0) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                index = slot(keys, symbol);
+            }
+            keys[index] = symbol + 1;
+            size++;
+        }
+        values[index] = value;
     }
 
     /**
@@ -90,17 +251,81 @@ public class Scope {
      * @return The value of the variable
      */
     public Object get(String key) {
-        return backingMap.get(key);
+        return get(symbolTable.lookup(key), key);
+    }
+
+    /**
+     * Retrieves the variable at this scope
+     *
+     * @param symbol The id of the variable or a negative number if the name
+     *               has no id in the symbol table
+     * @param key    The name of the variable
+     * @return The value of the variable
+     */
+    public Object get(int symbol, String key) {
+        if (size > 0 && symbol >= 0) {
+            int index = slot(keys, symbol);
+            if (keys[index] != 0) {
+                return values[index];
+            }
+        }
+        if (namedValues != null && namedValues.containsKey(key)) {
+            return namedValues.get(key);
+        }
+        return backingMap == null ? null : backingMap.get(key);
     }
 
     /**
      * Checks if this scope contains a variable of a certain name.
      *
      * @param key The name of the variable
-     * @return boolean stating whether or not the backing map of this scope contains that variable
+     * @return boolean stating whether or not this scope contains that variable
      */
     public boolean containsKey(String key) {
-        return backingMap.containsKey(key);
+        return containsKey(symbolTable.lookup(key), key);
+    }
+
+    /**
+     * Checks if this scope contains a variable of a certain name.
+     *
+     * @param symbol The id of the variable or a negative number if the name
+     *               has no id in the symbol table
+     * @param key    The name of the variable
+     * @return boolean stating whether or not this scope contains that variable
+     */
+    public boolean containsKey(int symbol, String key) {
+        return (size > 0 && symbol >= 0 && keys[slot(keys, symbol)] != 0)
+                || (namedValues != null && namedValues.containsKey(key))
+                || (backingMap != null && backingMap.containsKey(key));
+    }
+
+    /**
+     * Returns the slot which holds the given variable or the empty slot where
+     * it would be inserted. The table is never more than half full so the
+     * probing always terminates.
+     */
+    private static int slot(int[] keys, int symbol) {
+        int mask = keys.length - 1;
+        int key = symbol + 1;
+        int index = (key * 0x9E3779B9) >>> 16 & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int index = slot(keys, oldKeys[i] - 1);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
     }
 
 }
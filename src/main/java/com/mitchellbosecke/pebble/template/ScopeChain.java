@@ -8,10 +8,10 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.template;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 /**
  * A stack data structure used to represent the scope of variables that are currently accessible. Pushing a new scope
@@ -20,15 +20,36 @@ import java.util.Map;
  */
 public class ScopeChain {
 
+    private static final int INITIAL_DEPTH = 8;
+
+    /**
+     * The stack of scopes, the current scope is at {@code depth - 1}. Scopes
+     * above the current depth were popped and are kept to be reused by the
+     * next push.
+     */
+    private Scope[] stack = new Scope[INITIAL_DEPTH];
+
     /**
-     * The stack of scopes
+     * The amount of scopes currently on the stack.
      */
-    private LinkedList<Scope> stack = new LinkedList<Scope>();
+    private int depth;
+
+    private final SymbolTable symbolTable;
 
     /**
      * Constructs an empty scope chain without any known scopes.
      */
     public ScopeChain() {
+        this(new SymbolTable());
+    }
+
+    /**
+     * Constructs an empty scope chain without any known scopes.
+     *
+     * @param symbolTable The symbol table of the engine
+     */
+    public ScopeChain(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
     }
 
     /**
@@ -37,8 +58,8 @@ public class ScopeChain {
      * @param map The map of variables used to initialize a scope.
      */
     public ScopeChain(Map<String, Object> map) {
-        Scope scope = new Scope(new HashMap<String, Object>(map), false);
-        stack.push(scope);
+        this();
+        push(new HashMap<String, Object>(map), false);
     }
 
     /**
@@ -50,16 +71,19 @@ public class ScopeChain {
      * This will construct a new scope chain and new scopes but it will continue
      * to have references to the original user-provided variables. This is why
      * it is important for the user to only provide thread-safe variables
-     * when using the "parallel" tag.
+     * when using the "parallel" tag. The variables set by the template are
+     * only copied once either chain sets a variable in the copied scope, see
+     * {@link Scope#shallowCopy()}.
      *
      * @return A copy of the scope chain
      */
     public ScopeChain deepCopy() {
-        ScopeChain copy = new ScopeChain();
-
-        for (Scope originalScope : stack) {
-            copy.stack.add(originalScope.shallowCopy());
+        ScopeChain copy = new ScopeChain(symbolTable);
+        copy.stack = new Scope[Math.max(INITIAL_DEPTH, depth)];
+        for (int i = 0; i < depth; i++) {
+            copy.stack[i] = stack[i].shallowCopy();
         }
+        copy.depth = depth;
         return copy;
     }
 
@@ -67,32 +91,56 @@ public class ScopeChain {
      * Adds an empty non-local scope to the scope chain
      */
     public void pushScope() {
-        pushScope(new HashMap<String, Object>());
+        push(null, false);
     }
 
     /**
      * Adds a new non-local scope to the scope chain
      *
-     * @param map The known variables of this scope.
+     * @param map The known variables of this scope, they are only read and
+     *            never modified.
      */
     public void pushScope(Map<String, Object> map) {
-        Scope scope = new Scope(map, false);
-        stack.push(scope);
+        push(map, false);
     }
 
     /**
      * Adds a new local scope to the scope chain
      */
     public void pushLocalScope() {
-        Scope scope = new Scope(new HashMap<String, Object>(), true);
-        stack.push(scope);
+        push(null, true);
     }
 
     /**
      * Pops the most recent scope from the scope chain.
      */
     public void popScope() {
-        stack.pop();
+        if (depth == 0) {
+            throw new NoSuchElementException();
+        }
+        stack[--depth].clear();
+    }
+
+    /**
+     * Returns the symbol table which the variable ids refer to.
+     *
+     * @return The symbol table
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    private void push(Map<String, Object> map, boolean isLocal) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        Scope scope = stack[depth];
+        if (scope == null) {
+            stack[depth] = new Scope(map, isLocal, symbolTable);
+        } else {
+            scope.reset(map, isLocal);
+        }
+        depth++;
     }
 
     /**
@@ -102,7 +150,19 @@ public class ScopeChain {
      * @param value The value of the variable
      */
     public void put(String key, Object value) {
-        stack.peek().put(key, value);
+        stack[depth - 1].put(key, value);
+    }
+
+    /**
+     * Adds a variable to the current scope.
+     *
+     * @param symbol The id of the variable, see {@link SymbolTable}, or a
+     *               negative number if it is not known
+     * @param key    The name of the variable
+     * @param value  The value of the variable
+     */
+    public void put(int symbol, String key, Object value) {
+        stack[depth - 1].put(symbol, key, value);
     }
 
     /**
@@ -113,34 +173,30 @@ public class ScopeChain {
      * @return The value of the variable
      */
     public Object get(String key) {
-        Object result;
-
-        /*
-         * The majority of time, the requested variable will be in the first
-         * scope so we do a quick lookup in that scope before attempting to
-         * create an iterator, etc. This is solely for performance.
-         */
-        Scope scope = stack.getFirst();
-        result = scope.get(key);
-
-        if (result == null) {
-
-            Iterator<Scope> iterator = stack.iterator();
-
-            // account for the first lookup we did
-            iterator.next();
-
-            while (result == null && iterator.hasNext()) {
-                scope = iterator.next();
+        return get(symbolTable.lookup(key), key);
+    }
 
-                result = scope.get(key);
-                if (scope.isLocal()) {
-                    break;
-                }
+    /**
+     * Retrieves a variable from the scope chain, starting at the current
+     * scope and working it's way up all visible scopes.
+     *
+     * @param symbol The id of the variable, see {@link SymbolTable}, or a
+     *               negative number if it is not known
+     * @param key    The name of the variable
+     * @return The value of the variable
+     */
+    public Object get(int symbol, String key) {
+        if (symbol < 0) {
+            symbol = symbolTable.lookup(key);
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            Scope scope = stack[i];
+            Object result = scope.get(symbol, key);
+            if (result != null || scope.isLocal()) {
+                return result;
             }
         }
-
-        return result;
+        return null;
     }
 
     /**
@@ -152,33 +208,32 @@ public class ScopeChain {
      * given key does not exists.
      */
     public boolean containsKey(String key) {
+        return containsKey(symbolTable.lookup(key), key);
+    }
 
-        /*
-         * The majority of time, the requested variable will be in the first
-         * scope so we do a quick lookup in that scope before attempting to
-         * create an iterator, etc. This is solely for performance.
-         */
-        Scope scope = stack.getFirst();
-        if (scope.containsKey(key)) {
-            return true;
+    /**
+     * This method checks if the given variable does exists within the scope
+     * chain.
+     *
+     * @param symbol The id of the variable, see {@link SymbolTable}, or a
+     *               negative number if it is not known
+     * @param key    The name of the variable
+     * @return {@code true} when the key does exists or {@code false} when the
+     * given key does not exists.
+     */
+    public boolean containsKey(int symbol, String key) {
+        if (symbol < 0) {
+            symbol = symbolTable.lookup(key);
         }
-
-        Iterator<Scope> iterator = stack.iterator();
-
-        // account for the first lookup we did
-        iterator.next();
-
-        while (iterator.hasNext()) {
-            scope = iterator.next();
-
-            if (scope.containsKey(key)) {
+        for (int i = depth - 1; i >= 0; i--) {
+            Scope scope = stack[i];
+            if (scope.containsKey(symbol, key)) {
                 return true;
             }
             if (scope.isLocal()) {
-                break;
+                return false;
             }
         }
-
         return false;
     }
 
@@ -190,7 +245,23 @@ public class ScopeChain {
      * @return Whether or not the variable exists in the current scope
      */
     public boolean currentScopeContainsVariable(String variableName) {
-        return stack.getFirst().containsKey(variableName);
+        return stack[depth - 1].containsKey(variableName);
+    }
+
+    /**
+     * Checks if the current scope contains a variable without
+     * then looking up the scope chain.
+     *
+     * @param symbol       The id of the variable, see {@link SymbolTable}, or
+     *                     a negative number if it is not known
+     * @param variableName The name of the variable
+     * @return Whether or not the variable exists in the current scope
+     */
+    public boolean currentScopeContainsVariable(int symbol, String variableName) {
+        if (symbol < 0) {
+            symbol = symbolTable.lookup(variableName);
+        }
+        return stack[depth - 1].containsKey(symbol, variableName);
     }
 
 }
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ * <p>
+ * Copyright (c) 2014 by Mitchell Bösecke
+ * <p>
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.template;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns a numeric id to every variable name that a template declares or
+ * references. Nodes resolve their variable names once when they are parsed so
+ * that the scopes can store and look up template variables by id instead of
+ * hashing the name on every access.
+ * <p>
+ * Every engine has its own table which is shared by all of its templates so
+ * that a variable which is set in one template can be read by an included
+ * template. Ids are only assigned while parsing; names which are only used at
+ * runtime, such as the keys of the context maps, are looked up without being
+ * added so that the table does not grow with them.
+ *
+ * @author Mitchell
+ */
+public final class SymbolTable {
+
+    /**
+     * The id of the "loop" variable of the for loop.
+     */
+    public static final int LOOP_SYMBOL = 0;
+
+    /**
+     * The id of the "_self" variable of a macro.
+     */
+    public static final int SELF_SYMBOL = 1;
+
+    /**
+     * The id of the "_context" variable of a macro.
+     */
+    public static final int CONTEXT_SYMBOL = 2;
+
+    /**
+     * The id of the global "locale" variable.
+     */
+    public static final int LOCALE_SYMBOL = 3;
+
+    /**
+     * The id of the global "template" variable.
+     */
+    public static final int TEMPLATE_SYMBOL = 4;
+
+    /**
+     * Returned by {@link #lookup(String)} for a name without an id.
+     */
+    public static final int UNKNOWN_SYMBOL = -1;
+
+    private final ConcurrentMap<String, Integer> symbols = new ConcurrentHashMap<String, Integer>();
+
+    private final AtomicInteger nextSymbol = new AtomicInteger();
+
+    /**
+     * Creates a table which only knows the variables used by Pebble itself,
+     * with the ids of the constants of this class.
+     */
+    public SymbolTable() {
+        getSymbol("loop");
+        getSymbol("_self");
+        getSymbol("_context");
+        getSymbol("locale");
+        getSymbol("template");
+    }
+
+    /**
+     * Returns the id of a variable name, assigning a new one if the name has
+     * not been seen before. It is meant to be used while parsing a template.
+     *
+     * @param name The name of the variable
+     * @return The id of the variable
+     */
+    public int getSymbol(String name) {
+        Integer symbol = symbols.get(name);
+        if (symbol == null) {
+            Integer newSymbol = nextSymbol.getAndIncrement();
+            symbol = symbols.putIfAbsent(name, newSymbol);
+            if (symbol == null) {
+                symbol = newSymbol;
+            }
+        }
+        return symbol;
+    }
+
+    /**
+     * Returns the id of a variable name without assigning one.
+     *
+     * @param name The name of the variable
+     * @return The id of the variable or {@link #UNKNOWN_SYMBOL} if no template
+     * uses the name
+     */
+    public int lookup(String name) {
+        Integer symbol = symbols.get(name);
+        return symbol == null ? UNKNOWN_SYMBOL : symbol;
+    }
+
+    /**
+     * Returns the amount of names which have an id.
+     *
+     * @return The amount of names
+     */
+    public int size() {
+        return symbols.size();
+    }
+}
@@ -16,6 +16,7 @@ import com.mitchellbosecke.pebble.node.ForNode;
 import com.mitchellbosecke.pebble.node.RenderableNode;
 import com.mitchellbosecke.pebble.node.expression.Expression;
 import com.mitchellbosecke.pebble.parser.Parser;
+import com.mitchellbosecke.pebble.parser.ParserImpl;
 import com.mitchellbosecke.pebble.parser.StoppingCondition;
 
 public class ForTokenParser extends AbstractTokenParser {
@@ -36,6 +37,13 @@ public class ForTokenParser extends AbstractTokenParser {
         // get the iterable variable
         Expression<?> iterable = parser.getExpressionParser().parseExpression();
 
+        // the iterations may be rendered in parallel
+        boolean parallel = false;
+        if (stream.current().test(Token.Type.NAME, "parallel")) {
+            stream.next();
+            parallel = true;
+        }
+
         stream.expect(Token.Type.EXECUTE_END);
 
         BodyNode body = parser.subparse(decideForFork);
@@ -54,7 +62,8 @@ public class ForTokenParser extends AbstractTokenParser {
 
         stream.expect(Token.Type.EXECUTE_END);
 
-        return new ForNode(lineNumber, iterationVariable, iterable, body, elseBody);
+        return new ForNode(lineNumber, iterationVariable, iterable, body, elseBody, parallel,
+                ParserImpl.symbolTableOf(parser));
     }
 
     private StoppingCondition decideForFork = new StoppingCondition() {
@@ -15,6 +15,7 @@ import com.mitchellbosecke.pebble.node.RenderableNode;
 import com.mitchellbosecke.pebble.node.SetNode;
 import com.mitchellbosecke.pebble.node.expression.Expression;
 import com.mitchellbosecke.pebble.parser.Parser;
+import com.mitchellbosecke.pebble.parser.ParserImpl;
 
 public class SetTokenParser extends AbstractTokenParser {
 
@@ -34,7 +35,7 @@ public class SetTokenParser extends AbstractTokenParser {
 
         stream.expect(Token.Type.EXECUTE_END);
 
-        return new SetNode(lineNumber, name, value);
+        return new SetNode(lineNumber, name, value, ParserImpl.symbolTableOf(parser));
     }
 
     @Override
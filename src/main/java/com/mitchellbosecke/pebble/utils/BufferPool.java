@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps the buffers used to render templates so that they can be reused by
+ * later renders instead of being grown from scratch every time.
+ * <p>
+ * The buffers are pooled per thread; a buffer has to be released by the same
+ * thread that acquired it and must not be used afterwards. Each pool keeps
+ * its own buffers, which can be collected together with the pool once the
+ * engine is discarded, i.e. when a web application is redeployed. Only a few
+ * buffers are kept per thread, and buffers which grew beyond the maximum
+ * capacity are not kept so that a single huge render does not hold on to its
+ * memory forever. The default maximum capacity fits the output of large
+ * pages, so with the defaults a thread keeps up to two writers of 512K
+ * characters each.
+ *
+ * @author Mitchell
+ */
+public class BufferPool {
+
+    public static final int DEFAULT_MAX_BUFFERS = 2;
+
+    public static final int DEFAULT_MAX_CAPACITY = 512 * 1024;
+
+    public static final int BYTE_BUFFER_SIZE = 8192;
+
+    private final ThreadLocal<Buffers> buffers = new ThreadLocal<Buffers>() {
+
+        @Override
+        protected Buffers initialValue() {
+            return new Buffers();
+        }
+    };
+
+    private final int maxBuffers;
+
+    private final int maxCapacity;
+
+    public BufferPool() {
+        this(DEFAULT_MAX_BUFFERS, DEFAULT_MAX_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param maxBuffers  The amount of buffers of each kind that are kept per
+     *                    thread
+     * @param maxCapacity The capacity in characters above which a released
+     *                    writer is discarded
+     */
+    public BufferPool(int maxBuffers, int maxCapacity) {
+        if (maxBuffers < 0 || maxCapacity < 0) {
+            throw new IllegalArgumentException("The limits of the buffer pool must not be negative");
+        }
+        this.maxBuffers = maxBuffers;
+        this.maxCapacity = maxCapacity;
+    }
+
+    /**
+     * Returns an empty writer from the pool or a new one if the pool is empty.
+     *
+     * @param sizeHint The amount of characters that are expected to be written,
+     *                 zero if unknown
+     * @return An empty writer
+     */
+    public StringBuilderWriter acquireWriter(int sizeHint) {
+        StringBuilderWriter writer = buffers.get().writers.pollFirst();
+        if (writer == null) {
+            return new StringBuilderWriter(Math.max(sizeHint, 16));
+        }
+        writer.ensureCapacity(sizeHint);
+        return writer;
+    }
+
+    /**
+     * Returns a writer to the pool.
+     *
+     * @param writer A writer acquired from {@link #acquireWriter(int)}
+     */
+    public void releaseWriter(StringBuilderWriter writer) {
+        if (writer.capacity() > maxCapacity) {
+            return;
+        }
+        Deque<StringBuilderWriter> pooled = buffers.get().writers;
+        if (pooled.size() < maxBuffers) {
+            writer.reset();
+            pooled.addFirst(writer);
+        }
+    }
+
+    /**
+     * Returns a byte buffer of {@link #BYTE_BUFFER_SIZE} bytes, i.e. for an
+     * {@link Utf8Writer}. Its content is undefined.
+     *
+     * @return A byte buffer
+     */
+    public byte[] acquireByteBuffer() {
+        byte[] buffer = buffers.get().byteBuffers.pollFirst();
+        return buffer == null ? new byte[BYTE_BUFFER_SIZE] : buffer;
+    }
+
+    /**
+     * Returns a byte buffer to the pool.
+     *
+     * @param buffer A buffer acquired from {@link #acquireByteBuffer()}
+     */
+    public void releaseByteBuffer(byte[] buffer) {
+        Deque<byte[]> pooled = buffers.get().byteBuffers;
+        if (buffer.length == BYTE_BUFFER_SIZE && pooled.size() < maxBuffers) {
+            pooled.addFirst(buffer);
+        }
+    }
+
+    /**
+     * Discards the buffers this pool keeps for the current thread. Buffers
+     * kept for other threads are released once the pool is no longer
+     * referenced.
+     */
+    public void clear() {
+        buffers.remove();
+    }
+
+    private static final class Buffers {
+
+        private final Deque<StringBuilderWriter> writers = new ArrayDeque<StringBuilderWriter>();
+
+        private final Deque<byte[]> byteBuffers = new ArrayDeque<byte[]>();
+    }
+}
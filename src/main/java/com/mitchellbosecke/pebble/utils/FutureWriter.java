@@ -8,19 +8,33 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble.utils;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
 import java.io.IOException;
 import java.io.Writer;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 /**
  * A Writer that will wrap around the user-provided writer if the user also
  * provided an ExecutorService to the main PebbleEngine. A FutureWriter is
  * capable of handling Futures that will return a string.
- *
+ * <p>
+ * The output is kept as an ordered queue of segments: the futures and,
+ * between them, chunks of the text written in the meantime. Text written
+ * after a pending future is appended to the chunk at the end of the queue.
+ * As soon as the futures at the head of the queue are done, they and the
+ * chunks following them are passed on to the user-provided writer; once the
+ * queue is empty text is written through directly again. Only
+ * {@link #flush()} waits for futures that are still running, whereas
+ * {@link #flushAsync()} continues writing from the threads that complete them.
+ * Futures which are not {@link ListenableFuture}s can't tell when they are
+ * done, so {@link #flushAsync()} waits for them on the thread that reaches
+ * them; the futures of the "parallel" tags are always listenable.
+ * <p>
  * It is not thread safe but that is okay. Each thread will have it's own
  * writer, provided by the "parallel" node; i.e. they will never share writers.
  *
@@ -29,7 +43,11 @@ import java.util.concurrent.TimeoutException;
  */
 public class FutureWriter extends Writer {
 
-    private final LinkedList<Future<String>> orderedFutures = new LinkedList<Future<String>>();
+    /**
+     * Contains {@code Future<String>} and {@code StringBuilder} segments. The
+     * head is always a future which is not done yet.
+     */
+    private final ArrayDeque<Object> segments = new ArrayDeque<Object>();
 
     private final Writer internalWriter;
 
@@ -40,72 +58,163 @@ public class FutureWriter extends Writer {
     }
 
     public void enqueue(Future<String> future) throws IOException {
-        if (closed) {
-            throw new IOException("Writer is closed");
-        }
-        orderedFutures.add(future);
+        ensureOpen();
+        segments.addLast(future);
+        writeCompletedSegments();
     }
 
     @Override
-    public void write(final char[] cbuf, final int off, final int len) throws IOException {
-
-        if (closed) {
-            throw new IOException("Writer is closed");
+    public void write(int c) throws IOException {
+        if (isPassThrough()) {
+            internalWriter.write(c);
+        } else {
+            chunk().append((char) c);
         }
+    }
 
-        final String result = new String(cbuf, off, len);
-
-        if (orderedFutures.isEmpty()) {
-            internalWriter.write(result);
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        if (isPassThrough()) {
+            internalWriter.write(cbuf, off, len);
         } else {
-            Future<String> future = new Future<String>() {
+            chunk().append(cbuf, off, len);
+        }
+    }
 
-                @Override
-                public boolean cancel(boolean mayInterruptIfRunning) {
-                    return false;
-                }
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        if (isPassThrough()) {
+            internalWriter.write(str, off, len);
+        } else {
+            chunk().append(str, off, off + len);
+        }
+    }
 
-                @Override
-                public boolean isCancelled() {
-                    return false;
-                }
+    /**
+     * Returns the user-provided writer if it is a {@link Utf8Writer} and text
+     * written right now would be passed on to it directly, so that text which
+     * is already encoded can be written to it without being decoded again.
+     *
+     * @return The UTF-8 writer or null
+     * @throws IOException Thrown if the writer is closed or a completed
+     * segment can't be written
+     */
+    public Utf8Writer getUtf8Writer() throws IOException {
+        if (internalWriter instanceof Utf8Writer && isPassThrough()) {
+            return (Utf8Writer) internalWriter;
+        }
+        return null;
+    }
 
-                @Override
-                public boolean isDone() {
-                    return true;
-                }
+    /**
+     * Returns whether text can be written to the user-provided writer right
+     * away because there is nothing left to wait for.
+     */
+    private boolean isPassThrough() throws IOException {
+        ensureOpen();
+        if (!segments.isEmpty()) {
+            writeCompletedSegments();
+        }
+        return segments.isEmpty();
+    }
 
-                @Override
-                public String get() throws InterruptedException, ExecutionException {
-                    return result;
-                }
+    /**
+     * Returns the chunk at the end of the queue which text is appended to.
+     */
+    private StringBuilder chunk() {
+        Object last = segments.peekLast();
+        if (last instanceof StringBuilder) {
+            return (StringBuilder) last;
+        }
+        StringBuilder chunk = new StringBuilder();
+        segments.addLast(chunk);
+        return chunk;
+    }
 
-                @Override
-                public String get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
-                        TimeoutException {
-                    return null;
-                }
+    /**
+     * Writes the segments at the head of the queue until it reaches a future
+     * which is not done yet.
+     */
+    private void writeCompletedSegments() throws IOException {
+        while (!segments.isEmpty()) {
+            Object segment = segments.peekFirst();
+            if (segment instanceof Future && !((Future<?>) segment).isDone()) {
+                return;
+            }
+            writeSegment(segments.pollFirst());
+        }
+    }
 
-            };
+    private void writeSegment(Object segment) throws IOException {
+        if (segment instanceof StringBuilder) {
+            internalWriter.append((StringBuilder) segment);
+            return;
+        }
+        try {
+            @SuppressWarnings("unchecked")
+            String result = ((Future<String>) segment).get();
+            internalWriter.write(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException(e);
+        }
+    }
 
-            orderedFutures.add(future);
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed");
         }
     }
 
     @Override
     public void flush() throws IOException {
-        for (Future<String> future : orderedFutures) {
-            try {
-                String result = future.get();
-                internalWriter.write(result);
+        while (!segments.isEmpty()) {
+            writeSegment(segments.pollFirst());
+        }
+        internalWriter.flush();
+    }
+
+    /**
+     * Writes all the segments without waiting for the pending futures. The
+     * segments which are not done yet are written by the thread completing
+     * them, so nothing else may be written in the meantime.
+     *
+     * @return A future which is done once everything has been written and
+     * the user-provided writer has been flushed
+     */
+    public ListenableFuture<Void> flushAsync() {
+        SettableFuture<Void> result = SettableFuture.create();
+        flushAsync(result);
+        return result;
+    }
+
+    private void flushAsync(final SettableFuture<Void> result) {
+        Object pending;
+        try {
+            writeCompletedSegments();
+            while (!segments.isEmpty() && !(segments.peekFirst() instanceof ListenableFuture)) {
+                writeSegment(segments.pollFirst());
+                writeCompletedSegments();
+            }
+            if (segments.isEmpty()) {
                 internalWriter.flush();
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } catch (ExecutionException e) {
-                throw new IOException(e);
+                result.set(null);
+                return;
             }
+            pending = segments.peekFirst();
+        } catch (IOException e) {
+            result.setException(e);
+            return;
         }
-        orderedFutures.clear();
+
+        ((ListenableFuture<?>) pending).addListener(new Runnable() {
+
+            @Override
+            public void run() {
+                flushAsync(result);
+            }
+        }, MoreExecutors.sameThreadExecutor());
     }
 
     @Override
@@ -113,7 +222,6 @@ public class FutureWriter extends Writer {
         flush();
         internalWriter.close();
         closed = true;
-
     }
 
 }
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.utils;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a callable as a task of a {@link ForkJoinPool}.
+ * <p>
+ * A thread of the pool which waits for the result through {@link #get()}
+ * runs other tasks of the pool in the meantime, including the one it is
+ * waiting for. That way "parallel" tags nested within each other can't
+ * starve the pool, even if it only has a single thread. The result can also
+ * be listened to, which an asynchronous evaluation relies on.
+ *
+ * @author Mitchell
+ */
+public class ListenableForkJoinTask<V> implements ListenableFuture<V> {
+
+    private final SettableFuture<V> result = SettableFuture.create();
+
+    private final RecursiveAction task;
+
+    private ListenableForkJoinTask(final Callable<V> callable) {
+        this.task = new RecursiveAction() {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                try {
+                    result.set(callable.call());
+                } catch (Throwable e) {
+                    result.setException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs a callable in a pool. If the calling thread belongs to the pool,
+     * the task is pushed onto its own queue.
+     *
+     * @param pool     The pool
+     * @param callable The callable
+     * @return The future result of the callable
+     */
+    public static <V> ListenableForkJoinTask<V> fork(ForkJoinPool pool, Callable<V> callable) {
+        ListenableForkJoinTask<V> future = new ListenableForkJoinTask<V>(callable);
+        if (ForkJoinTask.getPool() == pool) {
+            future.task.fork();
+        } else {
+            pool.execute(future.task);
+        }
+        return future;
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+        if (!result.isDone()) {
+            task.quietlyJoin();
+        }
+        return result.get();
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return result.get(timeout, unit);
+    }
+
+    @Override
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return result.isCancelled();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        task.cancel(false);
+        return result.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public void addListener(Runnable listener, Executor executor) {
+        result.addListener(listener, executor);
+    }
+}
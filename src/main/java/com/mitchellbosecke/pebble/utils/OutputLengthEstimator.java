@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.utils;
+
+import java.util.Arrays;
+
+/**
+ * Estimates how long the next output of a template or of a part of it will
+ * be so that the buffer it is rendered into can be sized up front.
+ * <p>
+ * The estimate is the 90th percentile of the last 16 recorded lengths. It is
+ * only worked out again once every 16 recordings; until the first 16 lengths
+ * are known it is simply the largest one. The estimator is shared by all the
+ * threads rendering the same template and is deliberately not synchronized,
+ * a lost or stale recording only makes the estimate slightly less accurate.
+ *
+ * @author Mitchell
+ */
+public class OutputLengthEstimator {
+
+    private static final int WINDOW = 16;
+
+    private static final int PERCENTILE_INDEX = WINDOW * 9 / 10;
+
+    private final int[] lengths = new int[WINDOW];
+
+    private int count = 0;
+
+    private int estimate = 0;
+
+    /**
+     * Records the length of an output.
+     *
+     * @param length The length of the output
+     */
+    public void record(int length) {
+        int index = count++;
+        lengths[index & (WINDOW - 1)] = length;
+
+        if ((index & (WINDOW - 1)) == WINDOW - 1) {
+            int[] sorted = lengths.clone();
+            Arrays.sort(sorted);
+            estimate = sorted[PERCENTILE_INDEX];
+        } else if (index < WINDOW && length > estimate) {
+            estimate = length;
+        }
+    }
+
+    /**
+     * Returns the expected length of the next output.
+     *
+     * @return The expected length or zero if nothing was recorded yet
+     */
+    public int estimate() {
+        return estimate;
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.utils;
+
+import java.io.Writer;
+
+/**
+ * A writer which collects the text in a {@link StringBuilder}. Unlike a
+ * {@link java.io.StringWriter} it is not synchronized and it can be reset
+ * without giving up its capacity, which is what makes it reusable through a
+ * {@link BufferPool}.
+ *
+ * @author Mitchell
+ */
+public class StringBuilderWriter extends Writer {
+
+    private final StringBuilder builder;
+
+    public StringBuilderWriter() {
+        this(16);
+    }
+
+    public StringBuilderWriter(int initialCapacity) {
+        this.builder = new StringBuilder(initialCapacity);
+    }
+
+    @Override
+    public void write(int c) {
+        builder.append((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        builder.append(cbuf, off, len);
+    }
+
+    @Override
+    public void write(String str) {
+        builder.append(str);
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        builder.append(str, off, off + len);
+    }
+
+    @Override
+    public Writer append(CharSequence csq) {
+        builder.append(csq);
+        return this;
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end) {
+        builder.append(csq, start, end);
+        return this;
+    }
+
+    @Override
+    public Writer append(char c) {
+        builder.append(c);
+        return this;
+    }
+
+    /**
+     * Makes sure that the given amount of characters fit into the writer
+     * without growing it again.
+     *
+     * @param capacity The minimum capacity
+     */
+    public void ensureCapacity(int capacity) {
+        builder.ensureCapacity(capacity);
+    }
+
+    public int capacity() {
+        return builder.capacity();
+    }
+
+    public int length() {
+        return builder.length();
+    }
+
+    /**
+     * Discards the written text but keeps the capacity.
+     */
+    public void reset() {
+        builder.setLength(0);
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return builder.toString();
+    }
+}
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * A buffered writer which encodes characters to UTF-8 and writes them to an
+ * output stream. Text which is already encoded, such as the static text of a
+ * template, can be written with {@link #writeUtf8(byte[])} and is copied
+ * without being encoded again.
+ * <p>
+ * Malformed surrogates are replaced with a question mark, the same as an
+ * {@link java.io.OutputStreamWriter} does. Closing the writer closes the
+ * output stream.
+ *
+ * @author Mitchell
+ */
+public class Utf8Writer extends Writer {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final byte REPLACEMENT = '?';
+
+    private final OutputStream out;
+
+    private final byte[] buffer;
+
+    private int count = 0;
+
+    /**
+     * The amount of bytes which were already passed on to the output stream.
+     */
+    private long flushedBytes = 0;
+
+    /**
+     * A high surrogate which was written last and is still waiting for its
+     * low surrogate, or zero.
+     */
+    private char highSurrogate = 0;
+
+    public Utf8Writer(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public Utf8Writer(OutputStream out, int bufferSize) {
+        if (bufferSize < 4) {
+            throw new IllegalArgumentException("The buffer has to hold at least 4 bytes");
+        }
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Constructor which uses an existing buffer, i.e. one acquired from a
+     * {@link BufferPool}. The buffer must not be used by anything else until
+     * the writer has been flushed for the last time.
+     *
+     * @param out    The output stream
+     * @param buffer The buffer
+     */
+    public Utf8Writer(OutputStream out, byte[] buffer) {
+        if (buffer.length < 4) {
+            throw new IllegalArgumentException("The buffer has to hold at least 4 bytes");
+        }
+        this.out = out;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Writes text which is already encoded to UTF-8.
+     *
+     * @param bytes The UTF-8 encoded text
+     * @throws IOException Thrown by the output stream
+     */
+    public void writeUtf8(byte[] bytes) throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            ensureCapacity(1);
+            buffer[count++] = REPLACEMENT;
+        }
+        if (bytes.length > buffer.length - count) {
+            flushBuffer();
+            if (bytes.length >= buffer.length) {
+                out.write(bytes);
+                flushedBytes += bytes.length;
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        encode((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            encode(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            encode(str.charAt(i));
+        }
+    }
+
+    private void encode(char c) throws IOException {
+        ensureCapacity(4);
+
+        if (highSurrogate != 0) {
+            char high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint(high, c);
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                return;
+            }
+            buffer[count++] = REPLACEMENT;
+            ensureCapacity(3);
+        }
+
+        if (c < 0x80) {
+            buffer[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buffer[count++] = (byte) (0xC0 | (c >> 6));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buffer[count++] = REPLACEMENT;
+        } else {
+            buffer[count++] = (byte) (0xE0 | (c >> 12));
+            buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+            buffer[count++] = (byte) (0x80 | (c & 0x3F));
+        }
+    }
+
+    private void ensureCapacity(int length) throws IOException {
+        if (count + length > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            flushedBytes += count;
+            count = 0;
+        }
+    }
+
+    /**
+     * Returns the amount of bytes written so far, including the ones which
+     * are still buffered. A pending high surrogate is not counted yet.
+     *
+     * @return The amount of bytes
+     */
+    public long getByteCount() {
+        return flushedBytes + count;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (highSurrogate != 0) {
+            highSurrogate = 0;
+            ensureCapacity(1);
+            buffer[count++] = REPLACEMENT;
+        }
+        flush();
+        out.close();
+    }
+}
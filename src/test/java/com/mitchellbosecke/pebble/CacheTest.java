@@ -9,14 +9,20 @@
 package com.mitchellbosecke.pebble;
 
 import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.loader.StringLoader;
 import com.mitchellbosecke.pebble.template.PebbleTemplate;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ExecutorService;
@@ -26,6 +32,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class CacheTest extends AbstractTest {
 
@@ -174,6 +183,77 @@ public class CacheTest extends AbstractTest {
 		assertEquals(0, totalFailed.intValue());
 	}
 
+	@Test
+	public void testInvalidateEvictsDependentTemplates() throws PebbleException, IOException {
+		final Map<String, String> sources = new HashMap<String, String>();
+		sources.put("base", "base {% block content %}{% endblock %}");
+		sources.put("partial", "partial");
+		sources.put("page", "{% extends 'base' %}{% block content %}{% include 'partial' %}{% endblock %}");
+		sources.put("other", "other {% include 'partial' %}");
+		sources.put("unrelated", "unrelated");
+
+		PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader() {
+
+			@Override
+			public Reader getReader(String templateName) {
+				return new StringReader(sources.get(templateName));
+			}
+		}).build();
+
+		PebbleTemplate page = pebble.getTemplate("page");
+		PebbleTemplate other = pebble.getTemplate("other");
+		PebbleTemplate unrelated = pebble.getTemplate("unrelated");
+		pebble.getTemplate("base");
+		pebble.getTemplate("partial");
+
+		assertEquals(new HashSet<String>(Arrays.asList("partial", "page", "other")),
+				pebble.getDependencyGraph().getDependentsOf("partial"));
+
+		sources.put("base", "new base {% block content %}{% endblock %}");
+		pebble.invalidate("base");
+
+		assertSame(other, pebble.getTemplate("other"));
+		assertSame(unrelated, pebble.getTemplate("unrelated"));
+		assertNotSame(page, pebble.getTemplate("page"));
+
+		Writer writer = new StringWriter();
+		pebble.getTemplate("page").evaluate(writer);
+		assertEquals("new base partial", writer.toString());
+	}
+
+	@Test
+	public void testDependenciesAreForgottenWhenTemplatesLeaveTheCache() throws PebbleException {
+		PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).build();
+
+		String source = "{% include 'partial' %}";
+		pebble.getTemplate(source);
+		assertEquals(Collections.singleton("partial"), pebble.getDependencyGraph().getDependencies(source));
+
+		pebble.getTemplateCache().invalidateAll();
+		assertTrue(pebble.getDependencyGraph().getDependencies(source).isEmpty());
+		assertEquals(Collections.singleton("partial"), pebble.getDependencyGraph().getDependentsOf("partial"));
+	}
+
+	@Test
+	public void testDependenciesAreNotKeptWithoutCache() throws PebbleException {
+		PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).cacheActive(false).build();
+
+		String source = "{% include 'partial' %}";
+		pebble.getTemplate(source);
+		assertTrue(pebble.getDependencyGraph().getDependencies(source).isEmpty());
+	}
+
+	@Test
+	public void testInvalidateClearsTagCache() throws PebbleException, IOException {
+		PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).build();
+
+		pebble.getTemplate("{% cache 'test' %}cached{% endcache %}").evaluate(new StringWriter());
+		assertEquals(1, pebble.getTagCache().size());
+
+		pebble.invalidate("unrelated");
+		assertEquals(0, pebble.getTagCache().size());
+	}
+
 	static Random r = new SecureRandom();
 
 	public static class TestObject {
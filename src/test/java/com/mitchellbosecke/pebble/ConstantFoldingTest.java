@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * This file is part of Pebble.
+ *
+ * Copyright (c) 2014 by Mitchell Bösecke
+ *
+ * For the full copyright and license information, please view the LICENSE
+ * file that was distributed with this source code.
+ ******************************************************************************/
+package com.mitchellbosecke.pebble;
+
+import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.extension.AbstractExtension;
+import com.mitchellbosecke.pebble.extension.AbstractNodeVisitor;
+import com.mitchellbosecke.pebble.extension.Function;
+import com.mitchellbosecke.pebble.extension.NodeVisitor;
+import com.mitchellbosecke.pebble.extension.NodeVisitorFactory;
+import com.mitchellbosecke.pebble.loader.StringLoader;
+import com.mitchellbosecke.pebble.node.ForNode;
+import com.mitchellbosecke.pebble.node.RenderableNode;
+import com.mitchellbosecke.pebble.node.RootNode;
+import com.mitchellbosecke.pebble.node.expression.ConstantExpression;
+import com.mitchellbosecke.pebble.node.expression.Expression;
+import com.mitchellbosecke.pebble.template.PebbleTemplate;
+import com.mitchellbosecke.pebble.template.PebbleTemplateImpl;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConstantFoldingTest extends AbstractTest {
+
+    @Test
+    public void testFoldedExpressions() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true).build();
+
+        PebbleTemplate template = pebble.getTemplate("{{ 60 * 60 * 24 }} {{ 'a' ~ 'b' }} {{ -(2 + 3) }} "
+                + "{{ not (1 > 2) }} {{ [1, 2] contains 2 }} {{ true ? 'yes' : 'no' }} {{ 10 / 4.0 }}");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer);
+        assertEquals("86400 ab -5 true true yes 2.5", writer.toString());
+    }
+
+    /**
+     * A folded expression is still escaped whereas a string literal is not.
+     */
+    @Test
+    public void testFoldedExpressionIsEscaped() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true).build();
+
+        PebbleTemplate template = pebble.getTemplate("{{ '<b>' }}{{ '<' ~ 'b>' }}{{ true ? '<b>' : 'b' }}");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer);
+        assertEquals("<b>&lt;b&gt;<b>", writer.toString());
+    }
+
+    /**
+     * Constant lists and maps must not be shared between evaluations.
+     */
+    @Test
+    public void testConstantListIsNotShared() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true)
+                .extension(new AbstractExtension() {
+
+                    @Override
+                    public Map<String, Function> getFunctions() {
+                        return Collections.<String, Function>singletonMap(
+                                "append", new Function() {
+
+                                    @Override
+                                    public List<String> getArgumentNames() {
+                                        return Arrays.asList("list", "value");
+                                    }
+
+                                    @SuppressWarnings("unchecked")
+                                    @Override
+                                    public Object execute(Map<String, Object> args) {
+                                        List<Object> list = (List<Object>) args.get("list");
+                                        list.add(args.get("value"));
+                                        return list.size();
+                                    }
+                                });
+                    }
+                }).build();
+
+        PebbleTemplate template = pebble.getTemplate("{{ append([[1], 2], 3) }}{% set map = {'a': [1]} %}{{ append(map['a'], 2) }}");
+
+        for (int i = 0; i < 2; i++) {
+            Writer writer = new StringWriter();
+            template.evaluate(writer);
+            assertEquals("32", writer.toString());
+        }
+    }
+
+    @Test
+    public void testDeadBranchesAreRemoved() throws PebbleException, IOException {
+        final List<RenderableNode> children = new ArrayList<RenderableNode>();
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true)
+                .extension(new AbstractExtension() {
+
+                    @Override
+                    public List<NodeVisitorFactory> getNodeVisitors() {
+                        return Collections.<NodeVisitorFactory>singletonList(new NodeVisitorFactory() {
+
+                            @Override
+                            public NodeVisitor createVisitor(PebbleTemplate template) {
+                                return new AbstractNodeVisitor((PebbleTemplateImpl) template) {
+
+                                    @Override
+                                    public void visit(RootNode node) {
+                                        children.addAll(node.getBody().getChildren());
+                                    }
+                                };
+                            }
+                        });
+                    }
+                }).build();
+
+        PebbleTemplate template = pebble.getTemplate("a{% if 1 > 2 %}b{% elseif false %}c{% endif %}d"
+                + "{% if 1 == 1 %}e{% else %}f{% endif %}{% if false %}g{% elseif 'a' == 'a' %}h{% else %}i{% endif %}");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer);
+        assertEquals("adeh", writer.toString());
+
+        // "a" and "d" are merged, both "if" tags are replaced by their bodies
+        assertEquals(3, children.size());
+    }
+
+    /**
+     * A list which is only iterated over is folded into an unmodifiable
+     * constant instead of being created for every evaluation.
+     */
+    @Test
+    public void testIteratedListIsFolded() throws PebbleException, IOException {
+        final List<RenderableNode> children = new ArrayList<RenderableNode>();
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true)
+                .extension(new AbstractExtension() {
+
+                    @Override
+                    public List<NodeVisitorFactory> getNodeVisitors() {
+                        return Collections.<NodeVisitorFactory>singletonList(new NodeVisitorFactory() {
+
+                            @Override
+                            public NodeVisitor createVisitor(PebbleTemplate template) {
+                                return new AbstractNodeVisitor((PebbleTemplateImpl) template) {
+
+                                    @Override
+                                    public void visit(RootNode node) {
+                                        children.addAll(node.getBody().getChildren());
+                                    }
+                                };
+                            }
+                        });
+                    }
+                }).build();
+
+        PebbleTemplate template = pebble.getTemplate("{% for i in [1, 2 + 1, [4]] %}{{ i }}{% endfor %}");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer);
+        assertEquals("13[4]", writer.toString());
+
+        Expression<?> iterable = ((ForNode) children.get(0)).getIterable();
+        assertTrue(iterable instanceof ConstantExpression);
+        assertEquals(Arrays.asList(1L, 3L, Collections.singletonList(4L)),
+                ((ConstantExpression) iterable).getValue());
+    }
+
+    /**
+     * Errors in constant expressions are still reported when rendering.
+     */
+    @Test(expected = ArithmeticException.class)
+    public void testErrorIsReportedWhenRendering() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true).build();
+
+        PebbleTemplate template = pebble.getTemplate("{{ 1 / 0 }}");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer);
+    }
+}
@@ -15,15 +15,21 @@ import com.mitchellbosecke.pebble.extension.InvocationCountingFunction;
 import com.mitchellbosecke.pebble.extension.TestingExtension;
 import com.mitchellbosecke.pebble.loader.StringLoader;
 import com.mitchellbosecke.pebble.template.PebbleTemplate;
+import com.mitchellbosecke.pebble.template.ScopeChain;
+import com.mitchellbosecke.pebble.template.SymbolTable;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 public class CoreTagsTest extends AbstractTest {
 
@@ -202,6 +208,79 @@ public class CoreTagsTest extends AbstractTest {
         assertEquals("[3]02Alex11Bob[3]20John", writer.toString());
     }
 
+    @Test
+    public void testLoopVariableAsMap() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true).build();
+
+        String source = "{% for i in ['a', 'b'] %}{% if loop is map %}{{ loop['index'] }}{{ loop[\"last\"] }}"
+                + "{{ loop.length }}{% endif %}{% endfor %}";
+        PebbleTemplate template = pebble.getTemplate(source);
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer);
+        assertEquals("0false21true2", writer.toString());
+    }
+
+    /**
+     * An iterable which is not a collection is only iterated once, even if
+     * the length of the loop is requested.
+     */
+    @Test
+    public void testForWithOneShotIterable() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true).build();
+
+        PebbleTemplate template = pebble.getTemplate(
+                "{% for i in first %}{{ i }}{% if loop.last %}.{% endif %}{% endfor %}"
+                        + "{% for i in second %}{{ i }}{{ loop.first ? loop.length : '' }}{{ loop.revindex }}{% endfor %}");
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("first", new OneShotIterable("a", "b", "c"));
+        context.put("second", new OneShotIterable("a", "b", "c"));
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer, context);
+        assertEquals("abc.a32b1c0", writer.toString());
+    }
+
+    /**
+     * The loop variable changes with every iteration, so assigning it or
+     * passing it to a macro keeps the iteration at that point.
+     */
+    @Test
+    public void testLoopVariableIsKeptAsAssigned() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false).build();
+
+        PebbleTemplate template = pebble.getTemplate(
+                "{% macro show(l) %}{{ l.index }}{{ l.last }}{% endmacro %}"
+                        + "{% for i in items %}{% if loop.first %}{% set kept = loop %}{% endif %}{{ show(loop) }}{% endfor %}"
+                        + "{{ kept.index }}{{ kept.first }}{{ kept.last }}{{ kept.length }}");
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("items", new OneShotIterable("a", "b", "c"));
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer, context);
+        assertEquals("0false1false2true0truefalse3", writer.toString());
+    }
+
+    /**
+     * Copying the loop variable for a parallel tag must not fetch the
+     * remaining elements of an iterable of unknown size.
+     */
+    @Test
+    public void testParallelTagDoesNotFetchRemainingElements() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false)
+                .executorService(Executors.newCachedThreadPool()).build();
+        PebbleTemplate template = pebble.getTemplate(
+                "{% for i in first %}{% parallel %}{{ loop.index }}{% endparallel %}{{ first.fetched }}{% endfor %}"
+                        + "{% for i in second %}{% parallel %}{{ loop.revindex }}{% endparallel %}{% endfor %}");
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("first", new CountingIterable("a", "b", "c"));
+        context.put("second", new OneShotIterable("a", "b", "c"));
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer, context);
+        assertEquals("011223210", writer.toString());
+    }
+
     @Test
     public void testForWithMap() throws PebbleException, IOException {
         PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false).build();
@@ -485,6 +564,35 @@ public class CoreTagsTest extends AbstractTest {
         assertEquals("1", writer.toString());
     }
 
+    /**
+     * Recursion pushes more scopes than the initial capacity of the scope
+     * chain and sets more variables than the initial capacity of a scope.
+     */
+    @Test
+    public void testRecursiveMacroWithManyVariables() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true).build();
+        PebbleTemplate template = pebble.getTemplate("{{ count(12) }}|{{ count(3) }}"
+                + "{% macro count(n) %}{% set a = n %}{% set b = a %}{% set c = b %}{% set d = c %}{% set e = d %}"
+                + "{% set f = e %}{% if f > 0 %}{{ count(n - 1) }}{% endif %}{{ f }}{% endmacro %}");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer);
+        assertEquals("0123456789101112|0123", writer.toString());
+    }
+
+    @Test
+    public void testMacroCanNotAccessOuterVariables() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false).build();
+        PebbleTemplate template = pebble.getTemplate(
+                "{% set outer = 'out' %}{{ test('1') }}{% macro test(one) %}{{ one }}{{ outer }}{{ name }}{% endmacro %}");
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("name", "steve");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer, context);
+        assertEquals("1", writer.toString());
+    }
+
     /**
      * I was once writing macro output directly to writer which was preventing
      * output from being filtered. I have fixed this now.
@@ -810,6 +918,56 @@ public class CoreTagsTest extends AbstractTest {
         assertEquals("alex", writer.toString());
     }
 
+    /**
+     * Variables set by the template are stored in the template's own scope
+     * and do not leak into the map provided by the user.
+     */
+    @Test
+    public void testSetDoesNotModifyUserProvidedContext() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false).build();
+
+        String source = "{{ name }}{% set name = 'alex' %}{% for i in [1, 2] %}{% set name = name + i %}{% endfor %}{{ name }}";
+        PebbleTemplate template = pebble.getTemplate(source);
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("name", "steve");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer, context);
+        assertEquals("stevealex12", writer.toString());
+        assertEquals("steve", context.get("name"));
+        assertEquals(1, context.size());
+    }
+
+    /**
+     * Only the names used by templates get an id, the keys of the context and
+     * names which are set by the application are looked up without one.
+     */
+    @Test
+    public void testRuntimeNamesDoNotGrowSymbolTable() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false).build();
+        PebbleTemplate template = pebble.getTemplate("{% set a = 'x' %}{{ a }}{{ b }}");
+        SymbolTable symbolTable = pebble.getSymbolTable();
+        int size = symbolTable.size();
+
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> context = new HashMap<String, Object>();
+            context.put("key" + i, i);
+            context.put("b", i);
+            Writer writer = new StringWriter();
+            template.evaluate(writer, context);
+            assertEquals("x" + i, writer.toString());
+        }
+
+        ScopeChain scopeChain = new ScopeChain(symbolTable);
+        scopeChain.pushScope();
+        scopeChain.put("later", "value");
+        assertEquals("value", scopeChain.get("later"));
+        assertEquals(size, symbolTable.size());
+
+        // a variable set before its name got an id is still found by the id
+        pebble.getTemplate("{{ later }}");
+        assertEquals("value", scopeChain.get(symbolTable.lookup("later"), "later"));
+    }
     @Test
     public void testSetInChildTemplateOutsideOfBlock() throws PebbleException, IOException {
         PebbleEngine pebble = new PebbleEngine.Builder().strictVariables(false).build();
@@ -849,6 +1007,103 @@ public class CoreTagsTest extends AbstractTest {
     }
 
 
+    @Test
+    public void testParallelForLoop() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false)
+                .parallelism(3).build();
+        String source = "{% for i in range(0, 99) parallel %}{{ loop.index }}:{{ i }}{% if loop.first %}F{% endif %}{% if loop.last %}L{% endif %}/{{ loop.length }} {% else %}empty{% endfor %}"
+                + "{% for i in items parallel %}{{ i }}{% else %}empty{% endfor %}";
+        PebbleTemplate template = pebble.getTemplate(source);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            expected.append(i).append(':').append(i).append(i == 0 ? "F" : "").append(i == 99 ? "L" : "")
+                    .append("/100 ");
+        }
+        expected.append("empty");
+
+        Writer writer = new StringWriter();
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("items", new ArrayList<Object>());
+        template.evaluate(writer, context);
+        assertEquals(expected.toString(), writer.toString());
+    }
+
+    @Test
+    public void testParallelForLoopWithoutExecutorService() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false).build();
+        PebbleTemplate template = pebble.getTemplate("{% for i in [1, 2, 3] parallel %}{{ i }}{% endfor %}");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer);
+        assertEquals("123", writer.toString());
+    }
+
+    /**
+     * A parallel tag shares the variables of the template until one side
+     * sets a variable; neither may see the variables set by the other.
+     *
+     * @throws PebbleException
+     * @throws IOException
+     */
+    @Test
+    public void testParallelTagDoesNotShareVariablesSetLater() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false)
+                .executorService(Executors.newCachedThreadPool()).build();
+        String source = "{% set a = 1 %}{% parallel %}{{ slowObject.third }}{{ a }}{% set a = 2 %}{{ a }}{% endparallel %}{% set a = 3 %}{{ a }}";
+        PebbleTemplate template = pebble.getTemplate(source);
+
+        Writer writer = new StringWriter();
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("slowObject", new SlowObject());
+        template.evaluate(writer, context);
+
+        assertEquals("third123", writer.toString());
+    }
+
+    /**
+     * Nested parallel tags used to need a thread each; with a fork join pool
+     * the thread waiting for the inner tag renders it itself.
+     *
+     * @throws PebbleException
+     * @throws IOException
+     */
+    @Test(timeout = 2000)
+    public void testNestedParallelOnSingleThreadedForkJoinPool() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false)
+                .parallelism(1).build();
+        String source = "a{% parallel %}b{% parallel %}c{% parallel %}{{ slowObject.first }}{% endparallel %}d{% endparallel %}e{% endparallel %}f";
+        PebbleTemplate template = pebble.getTemplate(source);
+
+        for (int i = 0; i < 2; i++) {
+            Writer writer = new StringWriter();
+            Map<String, Object> context = new HashMap<String, Object>();
+            context.put("slowObject", new SlowObject());
+            template.evaluate(writer, context);
+
+            assertEquals("abcfirstdef", writer.toString());
+        }
+    }
+
+    @Test
+    public void testShutdownOnlyStopsPoolCreatedByEngine() {
+        PebbleEngine.Builder builder = new PebbleEngine.Builder().loader(new StringLoader()).parallelism(2);
+        PebbleEngine first = builder.build();
+        PebbleEngine second = builder.build();
+        assertNotSame(first.getExecutorService(), second.getExecutorService());
+
+        first.shutdown();
+        assertTrue(first.getExecutorService().isShutdown());
+        assertFalse(second.getExecutorService().isShutdown());
+        second.shutdown();
+
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        PebbleEngine pebble = builder.executorService(executorService).build();
+        pebble.shutdown();
+        assertFalse(executorService.isShutdown());
+        executorService.shutdown();
+    }
+
     /**
      * The for loop will add variables into the evaluation context during
      * runtime and there was an issue where the evaluation context wasn't thread
@@ -949,6 +1204,64 @@ public class CoreTagsTest extends AbstractTest {
         assertEquals("success", writer.toString());
     }
 
+    public static class OneShotIterable implements Iterable<Object> {
+
+        private final List<Object> elements;
+
+        private boolean iterated = false;
+
+        public OneShotIterable(Object... elements) {
+            this.elements = Arrays.asList(elements);
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            if (iterated) {
+                throw new IllegalStateException("Can only be iterated once");
+            }
+            iterated = true;
+            return elements.iterator();
+        }
+    }
+
+    public static class CountingIterable implements Iterable<Object> {
+
+        private final List<Object> elements;
+
+        private int fetched = 0;
+
+        public CountingIterable(Object... elements) {
+            this.elements = Arrays.asList(elements);
+        }
+
+        public int getFetched() {
+            return fetched;
+        }
+
+        @Override
+        public Iterator<Object> iterator() {
+            final Iterator<Object> iterator = elements.iterator();
+            return new Iterator<Object>() {
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    fetched++;
+                    return iterator.next();
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+
     public class SlowObject {
 
         public String first() {
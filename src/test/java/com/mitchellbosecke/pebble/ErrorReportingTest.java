@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.StringWriter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 
 public class ErrorReportingTest extends AbstractTest {
 
@@ -49,6 +50,29 @@ public class ErrorReportingTest extends AbstractTest {
         }
     }
 
+    /**
+     * Filters and tests are resolved when the template is compiled, even if
+     * they are never evaluated.
+     */
+    @Test
+    public void testUnknownFilterAndTestAreReportedWhenCompiling() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false).build();
+        try {
+            pebble.getTemplate("{% if false %}\n{{ 'a' | unknown }}{% endif %}");
+            fail("Expected a ParserException");
+        } catch (ParserException ex) {
+            assertEquals("Filter [unknown] does not exist. ({% if false %}\n{{ 'a' | unknown }}{% endif %}:2)",
+                    ex.getMessage());
+        }
+        try {
+            pebble.getTemplate("{% if false and 1 is unknown %}{% endif %}");
+            fail("Expected a ParserException");
+        } catch (ParserException ex) {
+            assertEquals("Test [unknown] does not exist. ({% if false and 1 is unknown %}{% endif %}:1)",
+                    ex.getMessage());
+        }
+    }
+
     @Test(expected = PebbleException.class)
     public void testLineNumberErrorReportingDuringEvaluation() throws PebbleException, IOException {
         PebbleEngine pebble = new PebbleEngine.Builder().strictVariables(false).build();
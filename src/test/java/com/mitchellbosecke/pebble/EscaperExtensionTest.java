@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -170,6 +171,24 @@ public class EscaperExtensionTest extends AbstractTest {
         assertEquals("&lt;br /&gt;", writer.toString());
     }
 
+    /**
+     * The output of the join filter is escaped while it is written.
+     */
+    @Test
+    public void testEscapeStreamingFilter() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).build();
+        PebbleTemplate template = pebble.getTemplate("{{ items | join('<br>') }} {{ items | join('&') | escape('url_param') }} "
+                + "{{ items | join | upper }} {{ items | join | escape | escape }} {{ items | join | raw }}");
+
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("items", Arrays.asList("<b>", "a&b"));
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer, context);
+        assertEquals("&lt;b&gt;&lt;br&gt;a&amp;b %3Cb%3E%26a%26b &lt;B&gt;A&amp;B &lt;b&gt;a&amp;b <b>a&b",
+                writer.toString());
+    }
+
     @Test
     public void testAutoescapeToken() throws PebbleException, IOException {
         PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false)
@@ -262,6 +281,29 @@ public class EscaperExtensionTest extends AbstractTest {
         assertEquals("my nbme is blex", writer.toString());
     }
 
+    /**
+     * A custom strategy always escapes the output of a streaming filter as a
+     * whole.
+     */
+    @Test
+    public void testCustomEscapingStrategyOfStreamingFilter() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false)
+                .defaultEscapingStrategy("quote").addEscapingStrategy("quote", new EscapingStrategy() {
+
+                    @Override
+                    public String escape(String input) {
+                        return "'" + input + "'";
+                    }
+                }).build();
+
+        PebbleTemplate template = pebble.getTemplate("{{ items | join(', ') }}");
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("items", Arrays.asList("a", "b", "c"));
+        Writer writer = new StringWriter();
+        template.evaluate(writer, context);
+        assertEquals("'a, b, c'", writer.toString());
+    }
+
     @Test
     public void testEscapeFunction() throws PebbleException, IOException {
         PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false)
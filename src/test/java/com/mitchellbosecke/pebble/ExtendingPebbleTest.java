@@ -8,9 +8,15 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble;
 
+import com.mitchellbosecke.pebble.error.ParserException;
 import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.extension.AbstractArgumentsFilter;
 import com.mitchellbosecke.pebble.extension.AbstractExtension;
+import com.mitchellbosecke.pebble.extension.Arguments;
 import com.mitchellbosecke.pebble.extension.Filter;
+import com.mitchellbosecke.pebble.extension.Function;
+import com.mitchellbosecke.pebble.extension.core.MaxFunction;
+import com.mitchellbosecke.pebble.extension.core.UpperFilter;
 import com.mitchellbosecke.pebble.loader.StringLoader;
 import com.mitchellbosecke.pebble.template.EvaluationContext;
 import com.mitchellbosecke.pebble.template.PebbleTemplate;
@@ -20,6 +26,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -53,9 +60,50 @@ public class ExtendingPebbleTest extends AbstractTest {
                     }
                 }
 
+            });
+
+            filters.put("surround", new AbstractArgumentsFilter() {
+
+                @Override
+                public List<String> getArgumentNames() {
+                    return Arrays.asList("left", "right");
+                }
+
+                @Override
+                public Object apply(Object input, Arguments args) {
+                    String right = args.isSet(1) ? (String) args.get(1) : "]";
+                    String suffix = args.getContext() == null ? "" : "!";
+                    return args.get(0) + String.valueOf(input) + right + suffix;
+                }
+
+            });
+            filters.put("shout", new UpperFilter() {
+
+                @Override
+                public Object apply(Object input, Map<String, Object> args) {
+                    return super.apply(input, args) + "!";
+                }
+
             });
             return filters;
         }
+
+        @Override
+        public Map<String, Function> getFunctions() {
+
+            Map<String, Function> functions = new HashMap<String, Function>();
+
+            functions.put("maxOrZero", new MaxFunction() {
+
+                @Override
+                public Object execute(Map<String, Object> args) {
+                    Object max = super.execute(args);
+                    return max == null ? 0 : max;
+                }
+
+            });
+            return functions;
+        }
     }
 
     /**
@@ -72,4 +120,50 @@ public class ExtendingPebbleTest extends AbstractTest {
         template.evaluate(writer);
         assertEquals("success", writer.toString());
     }
+
+    @Test
+    public void testArgumentsFilter() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false)
+                .extension(new CustomExtension()).build();
+
+        PebbleTemplate template = pebble.getTemplate("{{ 'a' | surround('[') }} {{ 'b' | surround(right='}', left='{') }}");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer);
+        assertEquals("[a]! {b}!", writer.toString());
+
+        // the map based method still works
+        Filter filter = pebble.getExtensionRegistry().getFilter("surround");
+        Map<String, Object> args = new HashMap<String, Object>();
+        args.put("left", "(");
+        args.put("right", ")");
+        assertEquals("(c)", filter.apply("c", args));
+    }
+
+    /**
+     * A filter or function extending one of the core extensions and
+     * overriding the map based method is still called through that method.
+     */
+    @Test
+    public void testOverriddenMapBasedMethodIsCalled() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false)
+                .extension(new CustomExtension()).build();
+
+        PebbleTemplate template = pebble.getTemplate("{{ 'a' | shout }} {{ maxOrZero(1, 3) }} {{ maxOrZero() }}");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer);
+        assertEquals("A! 3 0", writer.toString());
+    }
+
+    /**
+     * Arguments which the filter does not accept are reported when compiling.
+     */
+    @Test(expected = ParserException.class)
+    public void testArgumentsAreBoundWhenCompiling() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false)
+                .extension(new CustomExtension()).build();
+
+        pebble.getTemplate("{% if false %}{{ 'a' | surround(middle='-') }}{% endif %}");
+    }
 }
@@ -119,6 +119,56 @@ public class GetAttributeTest extends AbstractTest {
         assertEquals("hello Steve", writer2.toString());
     }
 
+    /**
+     * A single attribute node receiving more classes than its inline cache
+     * holds.
+     */
+    @Test
+    public void testMethodAttributeWithManyDifferentClasses() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true).build();
+        PebbleTemplate template = pebble.getTemplate("{% for object in objects %}{{ object.class.simpleName }} {% endfor %}");
+
+        List<Object> objects = new ArrayList<Object>();
+        objects.add("a");
+        objects.add(1L);
+        objects.add(1.5);
+        objects.add(true);
+        objects.add(new ArrayList<Object>());
+        objects.add(new SimpleObject());
+        objects.add("b");
+        objects.add(new SimpleObject());
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("objects", objects);
+
+        for (int i = 0; i < 2; i++) {
+            Writer writer = new StringWriter();
+            template.evaluate(writer, context);
+            assertEquals("String Long Double Boolean ArrayList SimpleObject String SimpleObject ", writer.toString());
+        }
+    }
+
+    @Test
+    public void testMemberResolutionIsSharedBetweenTemplates() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false).build();
+        PebbleTemplate template1 = pebble.getTemplate("hello {{ object.name }}{{ map.missing }}");
+        PebbleTemplate template2 = pebble.getTemplate("bye {{ object.name }}{{ map.missing }}");
+
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("object", new SimpleObject());
+        context.put("map", new HashMap<String, Object>());
+
+        Writer writer = new StringWriter();
+        template1.evaluate(writer, context);
+        template2.evaluate(writer, context);
+        template1.evaluate(writer, context);
+        assertEquals("hello Stevebye Stevehello Steve", writer.toString());
+
+        // the missing map key is resolved once and then cached as absent
+        assertEquals(2, pebble.getMemberAccessorRegistry().size());
+        assertEquals(2, pebble.getMemberAccessorRegistry().getStats().missCount());
+        assertEquals(3, pebble.getMemberAccessorRegistry().getStats().hitCount());
+    }
+
     @Test
     public void testBeanMethodWithArgument() throws PebbleException, IOException {
         PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true).build();
@@ -564,6 +614,25 @@ public class GetAttributeTest extends AbstractTest {
         assertEquals("hello ", writer.toString());
     }
 
+    /**
+     * The iterator of an ArrayList is a private class, its methods have to be
+     * invoked through the public Iterator interface.
+     */
+    @Test
+    public void testMethodOfNonPublicClass() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true).build();
+
+        PebbleTemplate template = pebble.getTemplate("{{ list.iterator.hasNext }} {{ list.listIterator.nextIndex }}");
+        Map<String, Object> context = new HashMap<String, Object>();
+        List<String> list = new ArrayList<String>();
+        list.add("first");
+        context.put("list", list);
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer, context);
+        assertEquals("true 0", writer.toString());
+    }
+
     public class PrimitiveArguments {
 
         public String getStringFromLong(long id) {
@@ -8,23 +8,40 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import com.mitchellbosecke.pebble.error.LoaderException;
 import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.lexer.Syntax;
 import com.mitchellbosecke.pebble.loader.*;
 import com.mitchellbosecke.pebble.template.PebbleTemplate;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.*;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class LoaderTest extends AbstractTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testClassLoaderLoader() throws PebbleException, IOException {
         Loader<?> loader = new ClasspathLoader();
@@ -79,6 +96,215 @@ public class LoaderTest extends AbstractTest {
 
     }
 
+    @Test
+    public void testFileLoaderReloadsChangedTemplates() throws PebbleException, IOException {
+        File directory = temporaryFolder.getRoot();
+        write(new File(directory, "parent.peb"), "parent {% block content %}{% endblock %}");
+        write(new File(directory, "child.peb"), "{% extends 'parent' %}{% block content %}child{% endblock %}");
+
+        Loader<?> loader = new FileLoader();
+        loader.setPrefix(directory.getPath());
+        loader.setSuffix(".peb");
+        PebbleEngine engine = new PebbleEngine.Builder().loader(loader).reloadChangedTemplates(true).build();
+
+        PebbleTemplate child = engine.getTemplate("child");
+        Writer writer = new StringWriter();
+        child.evaluate(writer);
+        assertEquals("parent child", writer.toString());
+
+        write(new File(directory, "parent.peb"), "changed parent {% block content %}{% endblock %}");
+
+        assertSame(child, engine.getTemplate("child"));
+        writer = new StringWriter();
+        engine.getTemplate("child").evaluate(writer);
+        assertEquals("changed parent child", writer.toString());
+    }
+
+    @Test
+    public void testPrecompileListedTemplates() throws PebbleException, IOException, InterruptedException {
+        File directory = temporaryFolder.newFolder("templates");
+        File nested = new File(directory, "nested");
+        nested.mkdir();
+        write(new File(directory, "child.peb"), "{% extends 'nested/parent' %}");
+        write(new File(nested, "parent.peb"), "parent");
+        write(new File(directory, "broken.peb"), "{{ unclosed");
+        write(new File(directory, "readme.txt"), "not a template");
+
+        FileLoader loader = new FileLoader();
+        loader.setPrefix(directory.getPath());
+        loader.setSuffix(".peb");
+        assertEquals(Arrays.asList("broken", "child", "nested/parent"), new ArrayList<String>(loader.listTemplateNames()));
+
+        PebbleEngine engine = new PebbleEngine.Builder().loader(loader).build();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Map<String, PebbleException> errors = engine.precompile(executorService);
+            assertEquals(Collections.singleton("broken"), errors.keySet());
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(2, engine.getTemplateCache().size());
+    }
+
+    @Test
+    public void testPrecompileDependencies() throws PebbleException, IOException, InterruptedException {
+        File directory = temporaryFolder.getRoot();
+        write(new File(directory, "child.peb"), "{% extends 'parent' %}{% include 'missing' %}");
+        write(new File(directory, "parent.peb"), "{% import 'macros' %}");
+        write(new File(directory, "macros.peb"), "{% macro test() %}{% endmacro %}");
+
+        Loader<?> loader = new FileLoader();
+        loader.setPrefix(directory.getPath());
+        loader.setSuffix(".peb");
+        PebbleEngine engine = new PebbleEngine.Builder().loader(loader).build();
+
+        Map<String, PebbleException> errors = engine.precompile(Collections.singleton("child"),
+                MoreExecutors.sameThreadExecutor());
+        assertEquals(Collections.singleton("missing"), errors.keySet());
+        assertTrue(errors.get("missing") instanceof LoaderException);
+        assertEquals(3, engine.getTemplateCache().size());
+    }
+
+    @Test
+    public void testClasspathLoaderListsTemplates() throws LoaderException {
+        ClasspathLoader loader = new ClasspathLoader();
+        loader.setPrefix("templates/loader");
+        loader.setSuffix(".peb");
+        assertEquals(Collections.singletonList("template.loaderTest"), new ArrayList<String>(loader.listTemplateNames()));
+    }
+
+    @Test
+    public void testPrecompiledTemplatesAreUsedWithoutSource() throws PebbleException, IOException {
+        File source = temporaryFolder.newFolder("source");
+        File target = temporaryFolder.newFolder("target");
+        new File(source, "nested").mkdir();
+        write(new File(source, "nested/child.peb"),
+                "{% extends 'nested/parent' %}{% block content %}{{ 'é' | upper }}{% endblock %}");
+        write(new File(source, "nested/parent.peb"), "{{ 1 + 2 }} {% block content %}{% endblock %}");
+        Precompiler.main(new String[] { source.getPath(), target.getPath() });
+
+        assertTrue(new File(target, "nested/child.pebc").isFile());
+
+        // the classpath only holds the precompiled templates
+        ClasspathLoader loader = new ClasspathLoader(new URLClassLoader(new URL[] { target.toURI().toURL() }, null));
+        loader.setPrecompiledSuffix(".pebc");
+        PebbleEngine engine = new PebbleEngine.Builder().loader(loader).build();
+        Writer writer = new StringWriter();
+        engine.getTemplate("nested/child").evaluate(writer);
+        assertEquals("3 É", writer.toString());
+    }
+
+    @Test(expected = LoaderException.class)
+    public void testPrecompiledTemplatesOfAnotherSyntaxAreIgnored() throws PebbleException, IOException {
+        File source = temporaryFolder.newFolder("source");
+        File target = temporaryFolder.newFolder("target");
+        write(new File(source, "template.peb"), "{{ 'text' }}");
+        Precompiler.main(new String[] { source.getPath(), target.getPath() });
+
+        ClasspathLoader loader = new ClasspathLoader(new URLClassLoader(new URL[] { target.toURI().toURL() }, null));
+        loader.setPrecompiledSuffix(".pebc");
+        loader.setSuffix(".peb");
+        Syntax.Builder syntax = new Syntax.Builder();
+        syntax.setPrintOpenDelimiter("${");
+        syntax.setPrintCloseDelimiter("}");
+        PebbleEngine engine = new PebbleEngine.Builder().loader(loader).syntax(syntax.build()).build();
+
+        // falls back to the source, which is not on the classpath
+        engine.getTemplate("template");
+    }
+
+    @Test
+    public void testPrecompiledTemplatesOfChangedSourceAreIgnored() throws PebbleException, IOException {
+        File source = temporaryFolder.newFolder("source");
+        File target = temporaryFolder.newFolder("target");
+        write(new File(source, "template.peb"), "{{ 'old' }}");
+        Precompiler.main(new String[] { source.getPath(), target.getPath() });
+        write(new File(target, "template.peb"), "{{ 'newer' }}");
+
+        ClasspathLoader loader = new ClasspathLoader(new URLClassLoader(new URL[] { target.toURI().toURL() }, null));
+        loader.setPrecompiledSuffix(".pebc");
+        loader.setSuffix(".peb");
+        PebbleEngine engine = new PebbleEngine.Builder().loader(loader).build();
+        Writer writer = new StringWriter();
+        engine.getTemplate("template").evaluate(writer);
+        assertEquals("newer", writer.toString());
+    }
+
+    /**
+     * The source is not read if its fingerprint matches the one of the
+     * precompiled template.
+     */
+    @Test
+    public void testPrecompiledTemplatesOfUnchangedSourceAreUsed() throws PebbleException, IOException {
+        File directory = temporaryFolder.newFolder("classes");
+        File source = new File(directory, "template.peb");
+        write(source, "{{ 'old' }}");
+        Precompiler.main(new String[] { directory.getPath(), directory.getPath() });
+
+        // same size and modification time, so the change goes unnoticed
+        long lastModified = source.lastModified();
+        write(source, "{{ 'new' }}");
+        source.setLastModified(lastModified);
+
+        ClasspathLoader loader = new ClasspathLoader(new URLClassLoader(new URL[] { directory.toURI().toURL() },
+                null));
+        loader.setPrecompiledSuffix(".pebc");
+        loader.setSuffix(".peb");
+        PebbleEngine engine = new PebbleEngine.Builder().loader(loader).build();
+        Writer writer = new StringWriter();
+        engine.getTemplate("template").evaluate(writer);
+        assertEquals("old", writer.toString());
+    }
+
+    /**
+     * A precompiled template on the classpath does not shadow a template
+     * which a loader in front of the classpath finds.
+     */
+    @Test
+    public void testPrecompiledTemplateOfResolvingLoaderIsUsed() throws PebbleException, IOException {
+        File override = temporaryFolder.newFolder("override");
+        File source = temporaryFolder.newFolder("source");
+        File target = temporaryFolder.newFolder("target");
+        write(new File(override, "template.peb"), "override");
+        write(new File(source, "template.peb"), "original");
+        Precompiler.main(new String[] { source.getPath(), target.getPath() });
+
+        FileLoader fileLoader = new FileLoader();
+        fileLoader.setPrefix(override.getPath());
+        ClasspathLoader classpathLoader = new ClasspathLoader(new URLClassLoader(
+                new URL[] { target.toURI().toURL() }, null));
+        classpathLoader.setPrecompiledSuffix(".pebc");
+        List<Loader<?>> loaders = new ArrayList<Loader<?>>();
+        loaders.add(fileLoader);
+        loaders.add(classpathLoader);
+        DelegatingLoader loader = new DelegatingLoader(loaders);
+        loader.setSuffix(".peb");
+
+        assertNull(loader.getPrecompiledStream(loader.createCacheKey("template")));
+
+        // without a source, the precompiled template is used
+        assertNull(loader.getPrecompiledStream(loader.createCacheKey("missing")));
+        write(new File(target, "other.pebc"), "");
+        PrecompiledStream precompiled = loader.getPrecompiledStream(loader.createCacheKey("other"));
+        assertNotNull(precompiled);
+        assertNull(precompiled.getSourceFingerprint());
+        precompiled.getInputStream().close();
+
+        PebbleEngine engine = new PebbleEngine.Builder().loader(loader).build();
+        Writer writer = new StringWriter();
+        engine.getTemplate("template").evaluate(writer);
+        assertEquals("override", writer.toString());
+    }
+
+    private void write(File file, String content) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+
     @Test
     public void testDelegatingLoader() throws PebbleException, IOException {
         List<Loader<?>> loaders = new ArrayList<Loader<?>>();
@@ -95,6 +321,53 @@ public class LoaderTest extends AbstractTest {
         assertEquals("LOADER ONE", writer.toString());
     }
 
+    @Test
+    public void testDelegatingLoaderCachesResolutions() throws LoaderException {
+        CountingStringLoaderFailure failure = new CountingStringLoaderFailure();
+        List<Loader<?>> loaders = new ArrayList<Loader<?>>();
+        loaders.add(failure);
+        loaders.add(new StringLoaderOne());
+        DelegatingLoader loader = new DelegatingLoader(loaders);
+        loader.setResolutionCacheTtl(1, TimeUnit.MINUTES);
+
+        loader.getReader(loader.createCacheKey("found"));
+        loader.getReader(loader.createCacheKey("found"));
+        assertEquals(1, failure.count);
+
+        loader.setPrefix("other");
+        loader.getReader(loader.createCacheKey("found"));
+        assertEquals(2, failure.count);
+    }
+
+    @Test
+    public void testDelegatingLoaderCachesMissingTemplates() {
+        CountingStringLoaderFailure failure = new CountingStringLoaderFailure();
+        List<Loader<?>> loaders = new ArrayList<Loader<?>>();
+        loaders.add(failure);
+        DelegatingLoader loader = new DelegatingLoader(loaders);
+        loader.setResolutionCacheTtl(1, TimeUnit.MINUTES);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                loader.getReader(loader.createCacheKey("missing"));
+                fail("Expected a LoaderException");
+            } catch (LoaderException e) {
+                assertEquals(1, failure.count);
+            }
+        }
+    }
+
+    private class CountingStringLoaderFailure extends StringLoaderFailure {
+
+        private int count = 0;
+
+        @Override
+        public Reader getReader(String templateName) throws LoaderException {
+            count++;
+            return super.getReader(templateName);
+        }
+    }
+
     /**
      * Always fail to find a template
      *
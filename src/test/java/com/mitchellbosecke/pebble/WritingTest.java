@@ -8,19 +8,31 @@
  ******************************************************************************/
 package com.mitchellbosecke.pebble;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.mitchellbosecke.pebble.error.PebbleException;
 import com.mitchellbosecke.pebble.loader.StringLoader;
 import com.mitchellbosecke.pebble.template.PebbleTemplate;
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class WritingTest extends AbstractTest {
 
@@ -45,6 +57,28 @@ public class WritingTest extends AbstractTest {
         assertEquals("firstsecond", writer.toString());
     }
 
+    @Test
+    public void testEvaluateToOutputStream() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).build();
+
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            source.append("a\u00e9\u20ac\uD83D\uDE00 {{ value }} {% if value is not null %}x{% endif %}");
+        }
+        PebbleTemplate template = pebble.getTemplate(source.toString());
+
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("value", "<\u00fc\uD83D\uDE01>");
+
+        Writer writer = new StringWriter();
+        template.evaluate(writer, context);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        template.evaluate(out, context);
+
+        assertEquals(writer.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
     public class UncloseableWriter extends StringWriter {
 
         @Override
@@ -76,6 +110,81 @@ public class WritingTest extends AbstractTest {
         }
     }
 
+    @Test
+    public void testEvaluateAsync() throws PebbleException, IOException, InterruptedException,
+            ExecutionException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader())
+                .executorService(Executors.newCachedThreadPool()).build();
+        String source = "beginning {% parallel %}{{ slowObject.first }}{% endparallel %} middle {% parallel %}{{ slowObject.second }}{% endparallel %} end";
+        PebbleTemplate template = pebble.getTemplate(source);
+
+        Writer writer = new StringWriter();
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("slowObject", new SlowObject());
+        ListenableFuture<Void> future = template.evaluateAsync(writer, context);
+
+        assertFalse(future.isDone());
+        assertEquals("beginning ", writer.toString());
+        future.get();
+        assertEquals("beginning first middle second end", writer.toString());
+    }
+
+    /**
+     * The parallel tags of an included template are written once they are
+     * done instead of being waited for while evaluating the template.
+     */
+    @Test(timeout = 2000)
+    public void testEvaluateAsyncWithInclude() throws PebbleException, IOException, InterruptedException,
+            ExecutionException {
+        final Map<String, String> sources = new HashMap<String, String>();
+        sources.put("page", "beginning {% include 'partial' %} end");
+        sources.put("partial", "{% parallel %}{{ latch.await() }}{% endparallel %} partial");
+
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader() {
+
+            @Override
+            public Reader getReader(String templateName) {
+                return new StringReader(sources.get(templateName));
+            }
+        }).executorService(Executors.newCachedThreadPool()).build();
+        PebbleTemplate template = pebble.getTemplate("page");
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Writer writer = new StringWriter();
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("latch", latch);
+        ListenableFuture<Void> future = template.evaluateAsync(writer, context);
+
+        assertFalse(future.isDone());
+        assertEquals("beginning ", writer.toString());
+        latch.countDown();
+        future.get();
+        assertEquals("beginning  partial end", writer.toString());
+    }
+
+    @Test
+    public void testExecutorServiceIsReturnedAsGiven() {
+        ExecutorService executorService = Executors.newCachedThreadPool();
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).executorService(executorService)
+                .build();
+        assertSame(executorService, pebble.getExecutorService());
+        executorService.shutdown();
+    }
+
+    @Test
+    public void testEvaluateAsyncReportsErrors() throws PebbleException, InterruptedException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(true)
+                .executorService(Executors.newCachedThreadPool()).build();
+        PebbleTemplate template = pebble.getTemplate("{% parallel %}{{ missing }}{% endparallel %}");
+
+        try {
+            template.evaluateAsync(new StringWriter()).get();
+            fail("expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
     public class SlowObject {
 
         public String first() {
@@ -0,0 +1,111 @@
+package com.mitchellbosecke.pebble.utils;
+
+import com.mitchellbosecke.pebble.PebbleEngine;
+import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.loader.StringLoader;
+import com.mitchellbosecke.pebble.template.PebbleTemplate;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests {@link BufferPool}.
+ *
+ * @author Mitchell
+ *
+ */
+public class BufferPoolTest {
+
+    @Test
+    public void testReleasedWriterIsReusedEmpty() {
+        BufferPool pool = new BufferPool();
+        StringBuilderWriter writer = pool.acquireWriter(100);
+        writer.write("hello");
+        pool.releaseWriter(writer);
+
+        StringBuilderWriter reused = pool.acquireWriter(1000);
+        Assert.assertSame(writer, reused);
+        Assert.assertEquals(0, reused.length());
+        Assert.assertTrue(reused.capacity() >= 1000);
+
+        Assert.assertNotSame(reused, pool.acquireWriter(0));
+    }
+
+    @Test
+    public void testLargeWritersAreNotKept() {
+        BufferPool pool = new BufferPool(2, 64);
+        StringBuilderWriter large = pool.acquireWriter(128);
+        pool.releaseWriter(large);
+        Assert.assertNotSame(large, pool.acquireWriter(0));
+    }
+
+    @Test
+    public void testAmountOfPooledWritersIsLimited() {
+        BufferPool pool = new BufferPool(1, 64);
+        StringBuilderWriter first = pool.acquireWriter(0);
+        StringBuilderWriter second = pool.acquireWriter(0);
+        pool.releaseWriter(first);
+        pool.releaseWriter(second);
+        Assert.assertSame(first, pool.acquireWriter(0));
+        Assert.assertNotSame(second, pool.acquireWriter(0));
+    }
+
+    @Test
+    public void testPoolsKeepTheirOwnBuffers() {
+        BufferPool first = new BufferPool();
+        BufferPool second = new BufferPool();
+        StringBuilderWriter writer = first.acquireWriter(0);
+        first.releaseWriter(writer);
+        Assert.assertNotSame(writer, second.acquireWriter(0));
+
+        second.clear();
+        Assert.assertSame(writer, first.acquireWriter(0));
+
+        first.releaseWriter(writer);
+        first.clear();
+        Assert.assertNotSame(writer, first.acquireWriter(0));
+    }
+
+    @Test
+    public void testLimitsAreConfiguredOnBuilder() {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).maxPooledBuffers(0).build();
+        BufferPool pool = pebble.getBufferPool();
+        StringBuilderWriter writer = pool.acquireWriter(0);
+        pool.releaseWriter(writer);
+        Assert.assertNotSame(writer, pool.acquireWriter(0));
+
+        pebble = new PebbleEngine.Builder().loader(new StringLoader()).maxPooledBufferCapacity(1024).build();
+        pool = pebble.getBufferPool();
+        writer = pool.acquireWriter(2048);
+        pool.releaseWriter(writer);
+        Assert.assertNotSame(writer, pool.acquireWriter(0));
+    }
+
+    @Test
+    public void testByteBufferIsReused() {
+        BufferPool pool = new BufferPool();
+        byte[] buffer = pool.acquireByteBuffer();
+        Assert.assertEquals(BufferPool.BYTE_BUFFER_SIZE, buffer.length);
+        pool.releaseByteBuffer(buffer);
+        Assert.assertSame(buffer, pool.acquireByteBuffer());
+    }
+
+    @Test
+    public void testEvaluateIntoPooledWriter() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false).build();
+        PebbleTemplate template = pebble.getTemplate(
+                "{% macro greet(name) %}hello {{ name }}{% endmacro %}{{ greet('a') }} {{ greet('b') }}");
+
+        BufferPool pool = pebble.getBufferPool();
+        for (int i = 0; i < 2; i++) {
+            StringBuilderWriter writer = pool.acquireWriter(0);
+            try {
+                template.evaluate(writer);
+                Assert.assertEquals("hello a hello b", writer.toString());
+            } finally {
+                pool.releaseWriter(writer);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.mitchellbosecke.pebble.utils;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Tests {@link FutureWriter}.
+ *
+ * @author Mitchell
+ *
+ */
+public class FutureWriterTest {
+
+    @Test
+    public void testCompletedSegmentsAreWrittenRightAway() throws IOException {
+        StringWriter out = new StringWriter();
+        FutureWriter writer = new FutureWriter(out);
+
+        writer.write("a");
+        SettableFuture<String> first = SettableFuture.create();
+        writer.enqueue(first);
+        writer.write("b");
+        writer.write('c');
+        SettableFuture<String> second = SettableFuture.create();
+        writer.enqueue(second);
+        writer.write("d".toCharArray());
+        Assert.assertEquals("a", out.toString());
+
+        first.set("1");
+        writer.write("e");
+        Assert.assertEquals("a1bc", out.toString());
+
+        second.set("2");
+        writer.write("f");
+        Assert.assertEquals("a1bc2def", out.toString());
+
+        writer.enqueue(Futures.immediateFuture("3"));
+        Assert.assertEquals("a1bc2def3", out.toString());
+    }
+
+    @Test
+    public void testFlushWaitsForPendingFutures() throws IOException {
+        StringWriter out = new StringWriter();
+        final FutureWriter writer = new FutureWriter(out);
+        final SettableFuture<String> future = SettableFuture.create();
+
+        writer.enqueue(future);
+        writer.write("b");
+        new Thread() {
+
+            @Override
+            public void run() {
+                future.set("a");
+            }
+        }.start();
+        writer.flush();
+        Assert.assertEquals("ab", out.toString());
+    }
+
+    @Test
+    public void testUtf8WriterIsOnlyExposedWhilePassingThrough() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Writer utf8Writer = new Utf8Writer(out);
+        FutureWriter writer = new FutureWriter(utf8Writer);
+        Assert.assertSame(utf8Writer, writer.getUtf8Writer());
+
+        SettableFuture<String> future = SettableFuture.create();
+        writer.enqueue(future);
+        Assert.assertNull(writer.getUtf8Writer());
+
+        future.set("a");
+        Assert.assertSame(utf8Writer, writer.getUtf8Writer());
+
+        Assert.assertNull(new FutureWriter(new StringWriter()).getUtf8Writer());
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailedFutureIsReported() throws IOException {
+        FutureWriter writer = new FutureWriter(new StringWriter());
+        writer.enqueue(Futures.<String>immediateFailedFuture(new IllegalStateException()));
+    }
+}
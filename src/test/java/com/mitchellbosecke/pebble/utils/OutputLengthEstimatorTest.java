@@ -0,0 +1,67 @@
+package com.mitchellbosecke.pebble.utils;
+
+import com.mitchellbosecke.pebble.PebbleEngine;
+import com.mitchellbosecke.pebble.error.PebbleException;
+import com.mitchellbosecke.pebble.loader.StringLoader;
+import com.mitchellbosecke.pebble.template.PebbleTemplate;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests {@link OutputLengthEstimator}.
+ *
+ * @author Mitchell
+ *
+ */
+public class OutputLengthEstimatorTest {
+
+    @Test
+    public void testLargestLengthIsUsedUntilWindowIsFull() {
+        OutputLengthEstimator estimator = new OutputLengthEstimator();
+        Assert.assertEquals(0, estimator.estimate());
+        estimator.record(10);
+        estimator.record(30);
+        estimator.record(20);
+        Assert.assertEquals(30, estimator.estimate());
+    }
+
+    @Test
+    public void testEstimateIsNinetiethPercentile() {
+        OutputLengthEstimator estimator = new OutputLengthEstimator();
+        for (int i = 1; i <= 16; i++) {
+            estimator.record(i * 100);
+        }
+        Assert.assertEquals(1500, estimator.estimate());
+
+        // a single outlier doesn't change the estimate
+        for (int i = 0; i < 15; i++) {
+            estimator.record(100);
+        }
+        estimator.record(100000);
+        Assert.assertEquals(100, estimator.estimate());
+    }
+
+    @Test
+    public void testTemplateEstimatesItsOutputLength() throws PebbleException, IOException {
+        PebbleEngine pebble = new PebbleEngine.Builder().loader(new StringLoader()).strictVariables(false).build();
+        PebbleTemplate template = pebble.getTemplate("{% for i in range(1, count) %}abc{% endfor %}");
+        Assert.assertEquals(0, template.getOutputLengthEstimate());
+
+        Map<String, Object> context = new HashMap<String, Object>();
+        context.put("count", 10);
+        Writer writer = new StringWriter();
+        template.evaluate(writer, context);
+        Assert.assertEquals(30, template.getOutputLengthEstimate());
+
+        context.put("count", 20);
+        template.evaluate(new ByteArrayOutputStream(), context);
+        Assert.assertEquals(60, template.getOutputLengthEstimate());
+    }
+}
@@ -0,0 +1,61 @@
+package com.mitchellbosecke.pebble.utils;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tests {@link Utf8Writer}.
+ *
+ * @author Mitchell
+ *
+ */
+public class Utf8WriterTest {
+
+    private static final String[] TEXTS = {"plain", "éü", "€", "😀", "\uD83D", "\uDE00",
+            "x\uD83D", "\uDE00y", "\uDE00\uD83D"};
+
+    /**
+     * The output has to be the same as the output of an OutputStreamWriter,
+     * including surrogate pairs which are split between two writes and
+     * malformed surrogates.
+     */
+    @Test
+    public void testSameOutputAsOutputStreamWriter() throws IOException {
+        for (String first : TEXTS) {
+            for (String second : TEXTS) {
+                ByteArrayOutputStream expected = new ByteArrayOutputStream();
+                Writer writer = new OutputStreamWriter(expected, StandardCharsets.UTF_8);
+                writer.write(first);
+                writer.write(second);
+                writer.close();
+
+                ByteArrayOutputStream actual = new ByteArrayOutputStream();
+                Utf8Writer utf8Writer = new Utf8Writer(actual, 4);
+                utf8Writer.write(first);
+                utf8Writer.write(second.toCharArray());
+                utf8Writer.close();
+
+                Assert.assertArrayEquals(first + second, expected.toByteArray(), actual.toByteArray());
+            }
+        }
+    }
+
+    @Test
+    public void testWriteEncodedText() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Utf8Writer writer = new Utf8Writer(out, 8);
+        writer.write("é");
+        writer.writeUtf8("€€€".getBytes(StandardCharsets.UTF_8));
+        writer.writeUtf8("a".getBytes(StandardCharsets.UTF_8));
+        writer.write('b');
+        writer.flush();
+
+        Assert.assertEquals("é€€€ab", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}